@@ -0,0 +1,142 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) 2020 Raymond Buckley
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package com.ray3k.jbumpexample.benchmarks;
+
+import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
+import com.badlogic.gdx.utils.Array;
+import com.dongbat.jbump.Collisions;
+import com.dongbat.jbump.Rect;
+import com.dongbat.jbump.World;
+import com.ray3k.jbumpexample.platformer.Assets;
+import com.ray3k.jbumpexample.platformer.Category;
+import com.ray3k.jbumpexample.platformer.Core;
+import com.ray3k.jbumpexample.platformer.Enemy;
+import com.ray3k.jbumpexample.platformer.Entity;
+import com.ray3k.jbumpexample.platformer.EntityManager;
+import com.ray3k.jbumpexample.platformer.Player;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the jbump calls made by the platformer against the layout of Core.MAP. Extra enemies are placed on the
+ * empty tiles of the map to see how the cost of a tick scales with the number of moving items. Loading the map is
+ * measured by PlatformerLoadBenchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PlatformerBenchmark {
+    /**
+     * The distance an enemy walks and falls in one 60Hz tick.
+     */
+    public static final float STEP = Enemy.RUN_SPEED / 60f;
+    @Param({"50", "100", "200", "400"})
+    public float cellSize;
+    @Param({"0", "100", "800"})
+    public int extraEnemies;
+    private final MapLoader mapLoader = new MapLoader();
+    private final Array<Enemy> enemies = new Array<>();
+    private final Collisions collisions = new Collisions();
+    private float direction = 1;
+    
+    @Setup(Level.Trial)
+    public void setup() {
+        HeadlessGdx.initialize();
+        Core.textureAtlas = new TextureAtlas();
+        Core.assetManager = new AssetManager();
+        Assets.queueSounds(Core.assetManager);
+        Core.assetManager.finishLoading();
+        Assets.resolve(Core.textureAtlas, Core.assetManager);
+        Core.camera = new OrthographicCamera();
+        Core.entities = new EntityManager();
+        Core.world = new World<>(cellSize);
+        mapLoader.loadMap();
+        
+        //place the extra enemies on empty tiles
+        String[] lines = Core.MAP.split("\n");
+        int placed = 0;
+        for (int j = 0; j < lines.length && placed < extraEnemies; j++) {
+            String line = lines[j];
+            for (int i = 0; i < line.length() && placed < extraEnemies; i++) {
+                if (line.charAt(i) != '-') continue;
+                
+                Enemy enemy = new Enemy();
+                enemy.x = i * Core.TILE_DIMENSION;
+                enemy.y = (lines.length - j) * Core.TILE_DIMENSION;
+                Core.entities.add(enemy);
+                placed++;
+            }
+        }
+        Core.entities.flush();
+        
+        for (int i = 0; i < Core.entities.size; i++) {
+            Entity entity = Core.entities.get(i);
+            if (entity instanceof Enemy) enemies.add((Enemy) entity);
+        }
+    }
+    
+    /**
+     * One tick of enemy movement: every enemy walks sideways and falls onto the blocks below it. The direction alternates
+     * between invocations so the enemies stay in place over the run.
+     */
+    @Benchmark
+    public void moveEnemies(Blackhole blackhole) {
+        direction = -direction;
+        for (int i = 0; i < enemies.size; i++) {
+            Enemy enemy = enemies.get(i);
+            Rect rect = Core.world.getRect(enemy.item);
+            blackhole.consume(Core.world.move(enemy.item, rect.x + direction * STEP, rect.y - STEP, Category.FILTER));
+        }
+    }
+    
+    /**
+     * The ground check made by Player.act before it starts a jump.
+     */
+    @Benchmark
+    public int projectGroundCheck() {
+        Player player = Core.player;
+        Rect rect = Core.world.getRect(player.item);
+        Core.world.project(player.item, rect.x, rect.y, rect.w, rect.h, rect.x, rect.y - .1f, Category.FILTER, collisions);
+        return collisions.size();
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        Core.assetManager.dispose();
+    }
+    
+    /**
+     * Exposes the protected map loading of Core.
+     */
+    private static class MapLoader extends Core {
+        @Override
+        public void loadMap() {
+            super.loadMap();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) 2020 Raymond Buckley
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package com.ray3k.jbumpexample.benchmarks;
+
+import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
+import com.dongbat.jbump.World;
+import com.ray3k.jbumpexample.platformer.Assets;
+import com.ray3k.jbumpexample.platformer.BinaryLevel;
+import com.ray3k.jbumpexample.platformer.Core;
+import com.ray3k.jbumpexample.platformer.EntityManager;
+import com.ray3k.jbumpexample.platformer.Snapshot;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures loading and restoring the layout of Core.MAP. Kept apart from PlatformerBenchmark because a load replaces
+ * every entity, so the extra enemies placed there would be thrown away.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PlatformerLoadBenchmark {
+    @Param({"50", "100", "200", "400"})
+    public float cellSize;
+    private final MapLoader mapLoader = new MapLoader();
+    private FileHandle binaryLevel;
+    private final Snapshot snapshot = new Snapshot();
+    
+    @Setup(Level.Trial)
+    public void setup() {
+        HeadlessGdx.initialize();
+        Core.textureAtlas = new TextureAtlas();
+        Core.assetManager = new AssetManager();
+        Assets.queueSounds(Core.assetManager);
+        Core.assetManager.finishLoading();
+        Assets.resolve(Core.textureAtlas, Core.assetManager);
+        Core.camera = new OrthographicCamera();
+        Core.entities = new EntityManager();
+        Core.world = new World<>(cellSize);
+        mapLoader.loadMap();
+        
+        binaryLevel = FileHandle.tempFile("level");
+        BinaryLevel.write(Core.MAP, binaryLevel);
+        snapshot.capture();
+    }
+    
+    /**
+     * Removes every item and builds the map again, as F5 does.
+     */
+    @Benchmark
+    public int loadMap() {
+        mapLoader.loadMap();
+        return Core.entities.size;
+    }
+    
+    /**
+     * Removes every item and loads the same map compiled into a BinaryLevel.
+     */
+    @Benchmark
+    public int loadBinaryLevel() {
+        Core.entities.clear();
+        mapLoader.loadBinaryLevel(BinaryLevel.read(binaryLevel));
+        return Core.entities.size;
+    }
+    
+    /**
+     * Brings every entity and item back to the state after setup, as F5 does.
+     */
+    @Benchmark
+    public int restoreSnapshot() {
+        snapshot.restore();
+        return Core.entities.size;
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        binaryLevel.delete();
+        Core.assetManager.dispose();
+    }
+    
+    /**
+     * Exposes the protected map loading of Core.
+     */
+    private static class MapLoader extends Core {
+        @Override
+        public void loadMap() {
+            super.loadMap();
+        }
+        
+        @Override
+        public void loadBinaryLevel(BinaryLevel level) {
+            super.loadBinaryLevel(level);
+        }
+    }
+}
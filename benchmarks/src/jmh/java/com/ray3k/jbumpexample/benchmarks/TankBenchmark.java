@@ -0,0 +1,215 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) 2020 Raymond Buckley
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package com.ray3k.jbumpexample.benchmarks;
+
+import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
+import com.badlogic.gdx.math.RandomXS128;
+import com.badlogic.gdx.utils.Array;
+import com.dongbat.jbump.CollisionFilter;
+import com.dongbat.jbump.ItemInfo;
+import com.dongbat.jbump.Rect;
+import com.dongbat.jbump.World;
+import com.ray3k.jbumpexample.tank.Assets;
+import com.ray3k.jbumpexample.tank.Category;
+import com.ray3k.jbumpexample.tank.Core;
+import com.ray3k.jbumpexample.tank.Enemy;
+import com.ray3k.jbumpexample.tank.Entity;
+import com.ray3k.jbumpexample.tank.EntityManager;
+import com.ray3k.jbumpexample.tank.FlowField;
+import com.ray3k.jbumpexample.tank.Player;
+import com.ray3k.jbumpexample.tank.Player.Bullet;
+import com.ray3k.jbumpexample.tank.Raycast;
+import com.ray3k.jbumpexample.tank.Raycasts;
+import com.ray3k.jbumpexample.tank.Steering;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the jbump calls made by the tank game with a swarm of enemies spread over a square field. The density stays
+ * the same for every enemy count so only the number of items changes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TankBenchmark {
+    public static final long SEED = 1234567L;
+    /**
+     * The average distance between two enemies in the field.
+     */
+    public static final float SPACING = 150f;
+    /**
+     * The distance an enemy flies in one 60Hz tick.
+     */
+    public static final float STEP = Enemy.MOVE_SPEED / 60f;
+    public static final int BULLETS = 64;
+    public static final int LASERS = 8;
+    public static final float LASER_LENGTH = 800f;
+    @Param({"100", "1000", "10000"})
+    public int enemyCount;
+    @Param({"32", "64", "128", "256"})
+    public float cellSize;
+    private World<Entity> world;
+    private final Array<Enemy> enemies = new Array<>(true, 16, Enemy.class);
+    private final Array<Bullet> bullets = new Array<>();
+    private final ArrayList<ItemInfo> infos = new ArrayList<>();
+    private final Raycasts raycasts = new Raycasts();
+    private final Raycast raycast = new Raycast(1 << Category.ENEMY);
+    private float fieldSize;
+    private float direction = 1;
+    
+    @Setup(Level.Trial)
+    public void setup() {
+        HeadlessGdx.initialize();
+        Core.textureAtlas = new TextureAtlas();
+        Core.assetManager = new AssetManager();
+        Assets.queueSounds(Core.assetManager);
+        Core.assetManager.finishLoading();
+        Assets.resolve(Core.textureAtlas, Core.assetManager);
+        Core.world = world = new World<>(cellSize);
+        Core.entities = new EntityManager();
+        Core.player = new Player();
+        
+        RandomXS128 random = new RandomXS128(SEED);
+        fieldSize = (float) Math.sqrt(enemyCount) * SPACING;
+        Core.flowField = new FlowField();
+        Core.flowField.update(fieldSize / 2, fieldSize / 2, fieldSize / 2, fieldSize / 2, Core.player.x, Core.player.y);
+        for (int i = 0; i < enemyCount; i++) {
+            Enemy enemy = new Enemy();
+            enemy.x = random.nextFloat() * fieldSize;
+            enemy.y = random.nextFloat() * fieldSize;
+            Core.entities.add(enemy);
+            enemies.add(enemy);
+        }
+        Core.entities.flush();
+        
+        for (int i = 0; i < BULLETS; i++) {
+            Bullet bullet = new Bullet();
+            bullet.x = random.nextFloat() * fieldSize;
+            bullet.y = random.nextFloat() * fieldSize;
+            bullets.add(bullet);
+        }
+    }
+    
+    /**
+     * One tick of enemy movement. Enemies cross each other, so every overlap is reported without resolving it. The
+     * direction alternates between invocations so the swarm stays in place over the run.
+     */
+    @Benchmark
+    public void moveEnemies(Blackhole blackhole) {
+        direction = -direction;
+        for (int i = 0; i < enemies.size; i++) {
+            Enemy enemy = enemies.get(i);
+            Rect rect = world.getRect(enemy.item);
+            blackhole.consume(world.move(enemy.item, rect.x + direction * STEP, rect.y + direction * STEP, Category.FILTER));
+        }
+    }
+    
+    /**
+     * One tick of enemy steering, split across threads once the swarm is larger than Steering.THRESHOLD.
+     */
+    @Benchmark
+    public void steerEnemies() {
+        Steering.steer(enemies, 1 / 60f);
+    }
+    
+    /**
+     * One tick of integrating the motion of the swarm over the columns of the MotionStore. The sign of the delta
+     * alternates between invocations so the swarm stays in place over the run.
+     */
+    @Benchmark
+    public void integrateEnemies() {
+        direction = -direction;
+        Core.entities.motion.integrate(Core.entities.size, direction / 60f);
+    }
+    
+    /**
+     * Rebuilding the flow field over the whole field, as happens when the player changes cell.
+     */
+    @Benchmark
+    public void buildFlowField() {
+        direction = -direction;
+        Core.flowField.update(fieldSize / 2, fieldSize / 2, fieldSize / 2, fieldSize / 2,
+                Core.player.x + direction * FlowField.CELL_SIZE, Core.player.y);
+    }
+    
+    /**
+     * The laser of the turret, cast from the center of the field in several directions.
+     */
+    @Benchmark
+    public int laserSegments() {
+        int hits = 0;
+        float centerX = fieldSize / 2;
+        float centerY = fieldSize / 2;
+        for (int i = 0; i < LASERS; i++) {
+            float angle = 360f * i / LASERS;
+            float endX = centerX + LASER_LENGTH * (float) Math.cos(Math.toRadians(angle));
+            float endY = centerY + LASER_LENGTH * (float) Math.sin(Math.toRadians(angle));
+            world.querySegmentWithCoords(centerX, centerY, endX, endY, CollisionFilter.defaultFilter, infos);
+            hits += infos.size();
+        }
+        return hits;
+    }
+    
+    /**
+     * The same lasers as laserSegments, cast through Raycasts so only the nearest enemy is looked for.
+     */
+    @Benchmark
+    public int laserRaycasts() {
+        int hits = 0;
+        float centerX = fieldSize / 2;
+        float centerY = fieldSize / 2;
+        for (int i = 0; i < LASERS; i++) {
+            float angle = 360f * i / LASERS;
+            float endX = centerX + LASER_LENGTH * (float) Math.cos(Math.toRadians(angle));
+            float endY = centerY + LASER_LENGTH * (float) Math.sin(Math.toRadians(angle));
+            raycast.set(centerX, centerY, endX, endY);
+            raycasts.cast(raycast);
+            if (raycast.hit) hits++;
+        }
+        return hits;
+    }
+    
+    /**
+     * Bullets are added to the world when fired and removed when they hit or leave the view.
+     */
+    @Benchmark
+    public void bulletChurn() {
+        for (int i = 0; i < bullets.size; i++) {
+            Bullet bullet = bullets.get(i);
+            world.add(bullet.item, bullet.x, bullet.y, Player.BULLET_WIDTH, Player.BULLET_HEIGHT);
+        }
+        for (int i = 0; i < bullets.size; i++) {
+            world.remove(bullets.get(i).item);
+        }
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        Core.assetManager.dispose();
+    }
+}
@@ -0,0 +1,69 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) 2020 Raymond Buckley
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package com.ray3k.jbumpexample.platformer;
+
+import com.badlogic.gdx.utils.Array;
+import com.dongbat.jbump.CollisionFilter;
+import com.dongbat.jbump.Item;
+
+import java.util.ArrayList;
+
+import static com.ray3k.jbumpexample.platformer.Core.*;
+
+/**
+ * A square area around the player outside of which entities are dormant: they don't act and their items don't move.
+ * The region is found by querying the world, so the cost of a tick depends on what is near the player instead of the
+ * size of the level. It is computed from the simulation state at the start of every tick, which makes entities wake
+ * up at the same tick on every run.
+ */
+public class ActivityRegion {
+    /**
+     * Half the size of the region in tiles. Keep it larger than half the view so dormant entities are never on screen.
+     */
+    public static float RADIUS = 16f;
+    public float centerX;
+    public float centerY;
+    private final ArrayList<Item> items = new ArrayList<>();
+    
+    /**
+     * Collects the entities that act this tick: every entity whose item overlaps the region and every entity without an
+     * item. The result is sorted in the order of the entity list so it does not depend on the hashing of the world.
+     */
+    public void findActiveEntities(Array<Entity> activeEntities) {
+        //stay where the player was last seen if it has been removed
+        if (player != null && player.index != -1) {
+            centerX = player.x + player.bboxX + player.bboxWidth / 2;
+            centerY = player.y + player.bboxY + player.bboxHeight / 2;
+        }
+        
+        float radius = RADIUS * TILE_DIMENSION;
+        activeEntities.clear();
+        world.queryRect(centerX - radius, centerY - radius, radius * 2, radius * 2, CollisionFilter.defaultFilter, items);
+        for (int i = 0; i < items.size(); i++) {
+            activeEntities.add((Entity) items.get(i).userData);
+        }
+        activeEntities.addAll(entities.entitiesWithoutItems);
+        activeEntities.sort(LIST_ORDER_COMPARATOR);
+    }
+}
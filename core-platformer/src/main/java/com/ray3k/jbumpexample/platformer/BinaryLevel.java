@@ -0,0 +1,191 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) 2020 Raymond Buckley
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package com.ray3k.jbumpexample.platformer;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.StreamUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+/**
+ * A level compiled from the text format of Core.MAP into a flat binary file. The file holds the tile grid, the collider
+ * rectangles already merged by BlockMerger, and the spawn positions, so loading it parses nothing and creates no
+ * object per tile. Files on disk are memory-mapped. The values are read in place from the buffer.
+ * <p>
+ * Layout, all ints big-endian: magic, version, columns, rows, player column, player row, enemy count, collider count,
+ * then one byte per tile row by row from the top, then column and row of every enemy, then column, row, width, and
+ * height of every collider. Rows count down from the top of the map as in Core.MAP.
+ */
+public class BinaryLevel {
+    public static final int MAGIC = 0x4A424C56;
+    public static final int VERSION = 1;
+    public static final String EXTENSION = "bin";
+    public static final byte EMPTY = 0;
+    public static final byte SOLID = 1;
+    private static final int HEADER_SIZE = 32;
+    public final int columns;
+    public final int rows;
+    public final int playerColumn;
+    public final int playerRow;
+    public final int enemyCount;
+    public final int colliderCount;
+    private final ByteBuffer buffer;
+    private final int enemiesOffset;
+    private final int collidersOffset;
+    
+    private BinaryLevel(ByteBuffer buffer) {
+        this.buffer = buffer;
+        if (buffer.getInt(0) != MAGIC) throw new GdxRuntimeException("Not a binary level.");
+        if (buffer.getInt(4) != VERSION) throw new GdxRuntimeException("Unsupported binary level version: " + buffer.getInt(4));
+        columns = buffer.getInt(8);
+        rows = buffer.getInt(12);
+        playerColumn = buffer.getInt(16);
+        playerRow = buffer.getInt(20);
+        enemyCount = buffer.getInt(24);
+        colliderCount = buffer.getInt(28);
+        enemiesOffset = HEADER_SIZE + columns * rows;
+        collidersOffset = enemiesOffset + enemyCount * 8;
+    }
+    
+    /**
+     * Maps the file into memory if it is on disk, otherwise reads it into a heap buffer.
+     */
+    public static BinaryLevel read(FileHandle file) {
+        File ioFile = file.file();
+        if (!ioFile.isFile()) return new BinaryLevel(ByteBuffer.wrap(file.readBytes()));
+        
+        RandomAccessFile randomAccessFile = null;
+        try {
+            randomAccessFile = new RandomAccessFile(ioFile, "r");
+            FileChannel channel = randomAccessFile.getChannel();
+            return new BinaryLevel(channel.map(MapMode.READ_ONLY, 0, channel.size()));
+        } catch (IOException e) {
+            throw new GdxRuntimeException("Error reading binary level: " + file, e);
+        } finally {
+            //the mapping stays valid after the channel is closed
+            StreamUtils.closeQuietly(randomAccessFile);
+        }
+    }
+    
+    public boolean isSolid(int column, int row) {
+        return buffer.get(HEADER_SIZE + row * columns + column) == SOLID;
+    }
+    
+    public int getEnemyColumn(int index) {
+        return buffer.getInt(enemiesOffset + index * 8);
+    }
+    
+    public int getEnemyRow(int index) {
+        return buffer.getInt(enemiesOffset + index * 8 + 4);
+    }
+    
+    public int getColliderColumn(int index) {
+        return buffer.getInt(collidersOffset + index * 16);
+    }
+    
+    public int getColliderRow(int index) {
+        return buffer.getInt(collidersOffset + index * 16 + 4);
+    }
+    
+    public int getColliderWidth(int index) {
+        return buffer.getInt(collidersOffset + index * 16 + 8);
+    }
+    
+    public int getColliderHeight(int index) {
+        return buffer.getInt(collidersOffset + index * 16 + 12);
+    }
+    
+    /**
+     * Copies the tile grid into a new array for StaticLayer.build(). Only needed when the level is drawn.
+     */
+    public boolean[][] getSolid() {
+        boolean[][] solid = new boolean[rows][columns];
+        for (int j = 0; j < rows; j++) {
+            for (int i = 0; i < columns; i++) {
+                solid[j][i] = isSolid(i, j);
+            }
+        }
+        return solid;
+    }
+    
+    /**
+     * Converts a text map file into a binary level. Arguments: the map file and the output file.
+     */
+    public static void main(String[] args) {
+        write(new FileHandle(args[0]).readString(), new FileHandle(args[1]));
+    }
+    
+    /**
+     * Compiles a map in the text format of Core.MAP.
+     */
+    public static void write(String map, FileHandle file) {
+        String[] lines = map.replace("\r", "").split("\n");
+        int rows = lines.length;
+        int columns = 0;
+        for (int j = 0; j < rows; j++) {
+            columns = Math.max(columns, lines[j].length());
+        }
+        
+        boolean[][] solid = new boolean[rows][columns];
+        IntArray enemies = new IntArray();
+        int playerColumn = 0;
+        int playerRow = 0;
+        for (int j = 0; j < rows; j++) {
+            for (int i = 0; i < lines[j].length(); i++) {
+                char c = lines[j].charAt(i);
+                if (c == '+') solid[j][i] = true;
+                else if (c == 'e') enemies.add(i, j);
+                else if (c == 'p') {
+                    playerColumn = i;
+                    playerRow = j;
+                }
+            }
+        }
+        IntArray colliders = new IntArray();
+        BlockMerger.merge(solid, colliders);
+        
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + columns * rows + enemies.size * 4 + colliders.size * 4);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(columns).putInt(rows).putInt(playerColumn).putInt(playerRow);
+        buffer.putInt(enemies.size / 2).putInt(colliders.size / 4);
+        for (int j = 0; j < rows; j++) {
+            for (int i = 0; i < columns; i++) {
+                buffer.put(solid[j][i] ? SOLID : EMPTY);
+            }
+        }
+        for (int i = 0; i < enemies.size; i++) {
+            buffer.putInt(enemies.get(i));
+        }
+        for (int i = 0; i < colliders.size; i++) {
+            buffer.putInt(colliders.get(i));
+        }
+        file.writeBytes(buffer.array(), false);
+    }
+}
@@ -25,24 +25,65 @@ package com.ray3k.jbumpexample.platformer;
 
 import com.badlogic.gdx.graphics.g2d.Animation;
 import com.badlogic.gdx.graphics.g2d.Animation.PlayMode;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
 import com.badlogic.gdx.graphics.g2d.TextureAtlas.AtlasRegion;
+import com.dongbat.jbump.Collision;
 import com.dongbat.jbump.Item;
 
+import java.nio.ByteBuffer;
+
+import static com.ray3k.jbumpexample.platformer.Core.blockPool;
+
 /**
- * An impassable object that collides with players and enemies.
+ * An impassable object that collides with players and enemies. Each block is an invisible collider covering a
+ * rectangle of merged tiles. The tiles themselves are drawn by the StaticLayer.
  */
 public class Block extends Entity {
-    public static Animation<AtlasRegion> block = new Animation<>(1 / 30f, Core.textureAtlas.findRegions("m-block"), PlayMode.LOOP);
+    public static Animation<AtlasRegion> block;
+    
+    /**
+     * Builds the animation drawn by the StaticLayer. Called by Assets.resolve().
+     */
+    public static void resolve(TextureAtlas atlas) {
+        block = new Animation<>(1 / 30f, atlas.findRegions("m-block"), PlayMode.LOOP);
+    }
     
-    public Block() {
-        animation = block;
-        bboxWidth = 100;
-        bboxHeight = 100;
+    /**
+     * Creates an invisible collider of the given size. Pooled blocks are resized by setting bboxWidth and bboxHeight
+     * before they are added.
+     */
+    public Block(float width, float height) {
+        bboxWidth = width;
+        bboxHeight = height;
         item = new Item<>(this);
+        setCategory(Category.BLOCK);
     }
     
     @Override
     public void act(float delta) {
     
     }
+    
+    @Override
+    public void despawned() {
+        blockPool.free(this);
+    }
+    
+    @Override
+    public void writeState(ByteBuffer buffer) {
+        super.writeState(buffer);
+        buffer.putFloat(bboxWidth).putFloat(bboxHeight);
+    }
+    
+    @Override
+    public void readState(ByteBuffer buffer) {
+        super.readState(buffer);
+        bboxWidth = buffer.getFloat();
+        bboxHeight = buffer.getFloat();
+    }
+    
+    @Override
+    public void dispatchContact(Entity receiver, Collision collision) {
+        receiver.contactBlock(this, collision);
+    }
 }
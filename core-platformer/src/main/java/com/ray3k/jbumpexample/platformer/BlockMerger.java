@@ -0,0 +1,84 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) 2020 Raymond Buckley
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package com.ray3k.jbumpexample.platformer;
+
+import com.badlogic.gdx.utils.IntArray;
+
+import java.util.Arrays;
+
+/**
+ * Merges a grid of solid tiles into as few rectangles as possible so the static geometry needs far fewer jbump items.
+ */
+public class BlockMerger {
+    /**
+     * Greedily covers every solid tile with maximal rectangles. A run is grown along its row first, then extended down
+     * through the following rows for as long as every tile below the run is solid and not yet covered. Each rectangle is
+     * appended to the output as four values: column, row, width, and height in tiles. Row 0 is the top of the map.
+     */
+    public static void merge(boolean[][] solid, IntArray rectangles) {
+        boolean[][] merged = new boolean[solid.length][];
+        for (int j = 0; j < solid.length; j++) {
+            merged[j] = new boolean[solid[j].length];
+        }
+        merge(solid, merged, rectangles);
+    }
+    
+    /**
+     * Like merge(boolean[][], IntArray), using the given grid, at least as large as solid, to mark the covered tiles.
+     * Lets a caller that merges repeatedly reuse the grid.
+     */
+    public static void merge(boolean[][] solid, boolean[][] merged, IntArray rectangles) {
+        int rows = solid.length;
+        for (int j = 0; j < rows; j++) {
+            Arrays.fill(merged[j], 0, solid[j].length, false);
+        }
+        
+        for (int j = 0; j < rows; j++) {
+            for (int i = 0; i < solid[j].length; i++) {
+                if (!solid[j][i] || merged[j][i]) continue;
+                
+                int width = 1;
+                while (i + width < solid[j].length && solid[j][i + width] && !merged[j][i + width]) width++;
+                
+                int height = 1;
+                while (j + height < rows && isFreeRun(solid, merged, j + height, i, width)) height++;
+                
+                for (int row = j; row < j + height; row++) {
+                    for (int column = i; column < i + width; column++) {
+                        merged[row][column] = true;
+                    }
+                }
+                rectangles.add(i, j, width, height);
+            }
+        }
+    }
+    
+    private static boolean isFreeRun(boolean[][] solid, boolean[][] merged, int row, int column, int width) {
+        if (column + width > solid[row].length) return false;
+        for (int i = column; i < column + width; i++) {
+            if (!solid[row][i] || merged[row][i]) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,78 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) 2020 Raymond Buckley
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package com.ray3k.jbumpexample.platformer;
+
+import com.dongbat.jbump.CollisionFilter;
+import com.dongbat.jbump.Item;
+import com.dongbat.jbump.Response;
+
+/**
+ * The collision categories of the entities and the table of responses between them. The table is filled once, so
+ * filtering a pair during a move is a mask test and an array lookup instead of a chain of type checks.
+ */
+public class Category {
+    public static final int NONE = 0;
+    public static final int PLAYER = 1;
+    public static final int ENEMY = 2;
+    public static final int BLOCK = 3;
+    public static final int COUNT = 4;
+    /**
+     * The response of an entity of the first category moving into an entity of the second. Null means no collision.
+     */
+    public static final Response[][] RESPONSES = new Response[COUNT][COUNT];
+    /**
+     * The categories each category collides with as bits, derived from RESPONSES.
+     */
+    public static final int[] MASKS = new int[COUNT];
+    /**
+     * The filter used by every entity that moves through the world.
+     */
+    public static final CategoryFilter FILTER = new CategoryFilter();
+    
+    static {
+        //players slide on blocks and detect enemies, enemies slide on blocks and other enemies
+        set(PLAYER, BLOCK, Response.slide);
+        set(PLAYER, ENEMY, Response.cross);
+        set(ENEMY, BLOCK, Response.slide);
+        set(ENEMY, ENEMY, Response.slide);
+    }
+    
+    private static void set(int category, int other, Response response) {
+        RESPONSES[category][other] = response;
+        MASKS[category] |= 1 << other;
+    }
+    
+    /**
+     * Rejects a pair with the mask of the moving entity, then looks the response up in RESPONSES.
+     */
+    public static class CategoryFilter implements CollisionFilter {
+        @Override
+        public Response filter(Item item, Item other) {
+            Entity entity = (Entity) item.userData;
+            Entity otherEntity = (Entity) other.userData;
+            if ((entity.mask & 1 << otherEntity.category) == 0) return null;
+            return RESPONSES[entity.category][otherEntity.category];
+        }
+    }
+}
@@ -0,0 +1,384 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) 2020 Raymond Buckley
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package com.ray3k.jbumpexample.platformer;
+
+import com.dongbat.jbump.Rect;
+import com.dongbat.jbump.World;
+
+import java.util.Arrays;
+
+import static com.ray3k.jbumpexample.platformer.Core.*;
+
+/**
+ * Measures how well the cell size of the world fits the items in it and recommends a better one. Every SAMPLE_INTERVAL
+ * ticks the tuner records the rects of the items and the moves, adds, and removes made during the tick. It then works
+ * out their cost for the current cell size and for multiples of the mean size of the moving items. Smaller cells mean
+ * fewer candidates but more cells to visit, so the cost of a cell size is the sum of the candidates each move checks,
+ * the cells it visits to find them, the cells its item leaves and enters, and the cells every added or removed item
+ * covers. A candidate is another item in the cells covered by the start and goal rects of a move. World doesn't expose
+ * these counts, so they are taken from a copy of its grid built with the same cell math as jbump.
+ */
+public class CellSizeTuner {
+    public static final int SAMPLE_INTERVAL = 30;
+    /**
+     * The most moves and the most adds and removes recorded in a sampled tick.
+     */
+    public static final int MAX_MOVES = 4096;
+    /**
+     * The moves to sample before a cell size is recommended.
+     */
+    public static final int MIN_MOVES = 1000;
+    /**
+     * The fraction of the cost a cell size has to save over the current one to be recommended.
+     */
+    public static final float MIN_IMPROVEMENT = .1f;
+    /**
+     * The cell sizes compared with the current one, as multiples of the mean size of the moving items in the first
+     * sampled tick. They stay fixed until the world is created again so every size is measured over the same moves.
+     */
+    public static final float[] FACTORS = {.5f, 1f, 1.5f, 2f, 3f, 4f};
+    //a key packs the column and row of a cell and the index of an item into 21 bits each
+    private static final int BITS = 21;
+    private static final int MASK = (1 << BITS) - 1;
+    private static final int OFFSET = 1 << BITS - 1;
+    /**
+     * The cell size of the world created by createWorld().
+     */
+    public float cellSize;
+    public long sampledMoves;
+    /**
+     * The current cell size followed by the sizes made from FACTORS, or zeros before the first sampled move.
+     */
+    private final float[] sizes = new float[FACTORS.length + 1];
+    private final long[] candidates = new long[sizes.length];
+    private final long[] costs = new long[sizes.length];
+    private float moverSize;
+    private float previousCellSize;
+    private float previousCostPerMove = -1;
+    private int tick;
+    private boolean sampling;
+    //x, y, width, and height of the item of every entity by index, with a negative width for entities without items in
+    //the world
+    private float[] rects = new float[256];
+    private int rectCount;
+    //start x, start y, goal x, goal y, width, and height of every move
+    private final float[] moves = new float[MAX_MOVES * 6];
+    private final int[] movers = new int[MAX_MOVES];
+    private int moveCount;
+    private double moverSizeSum;
+    //x, y, width, and height of every item added or removed
+    private final float[] churn = new float[MAX_MOVES * 4];
+    private int churnCount;
+    private long[] keys = new long[1024];
+    private int keyCount;
+    private int[] stamps = new int[64];
+    private int stamp;
+    
+    /**
+     * Creates an empty world with the given cell size and starts measuring it from scratch.
+     */
+    public World<Entity> createWorld(float cellSize) {
+        this.cellSize = cellSize;
+        sampledMoves = 0;
+        Arrays.fill(sizes, 0);
+        Arrays.fill(candidates, 0);
+        Arrays.fill(costs, 0);
+        return new World<>(cellSize);
+    }
+    
+    /**
+     * Creates a world with the given cell size and adds the items of every entity in Core.entities at their rect in
+     * Core.world. Keeps the cost per move measured so far to compare it in report().
+     */
+    public World<Entity> rebuild(float cellSize) {
+        previousCellSize = this.cellSize;
+        previousCostPerMove = getCostPerMove();
+        
+        World<Entity> newWorld = createWorld(cellSize);
+        for (int i = 0; i < entities.size; i++) {
+            Entity entity = entities.get(i);
+            if (entity.item == null || entity.removed) continue;
+            
+            Rect rect = world.getRect(entity.item);
+            newWorld.add(entity.item, rect.x, rect.y, rect.w, rect.h);
+        }
+        return newWorld;
+    }
+    
+    /**
+     * Call before the entities act. Records the rects of the items if this tick is sampled.
+     */
+    public void beginTick() {
+        sampling = ++tick % SAMPLE_INTERVAL == 0;
+        if (!sampling) return;
+        
+        rectCount = entities.size;
+        if (rects.length < rectCount * 4) rects = new float[rectCount * 8];
+        for (int i = 0; i < rectCount; i++) {
+            Entity entity = entities.get(i);
+            if (entity.item == null || entity.removed) {
+                rects[i * 4 + 2] = -1;
+                continue;
+            }
+            
+            Rect rect = world.getRect(entity.item);
+            rects[i * 4] = rect.x;
+            rects[i * 4 + 1] = rect.y;
+            rects[i * 4 + 2] = rect.w;
+            rects[i * 4 + 3] = rect.h;
+        }
+        moveCount = 0;
+        churnCount = 0;
+        moverSizeSum = 0;
+    }
+    
+    /**
+     * Call before the item of the entity is moved with World.move to the given goal. Does nothing unless the tick is
+     * sampled.
+     */
+    public void recordMove(Entity entity, float goalX, float goalY) {
+        if (!sampling || moveCount == MAX_MOVES || entity.index == -1 || entity.index >= rectCount) return;
+        
+        Rect rect = world.getRect(entity.item);
+        moves[moveCount * 6] = rect.x;
+        moves[moveCount * 6 + 1] = rect.y;
+        moves[moveCount * 6 + 2] = goalX;
+        moves[moveCount * 6 + 3] = goalY;
+        moves[moveCount * 6 + 4] = rect.w;
+        moves[moveCount * 6 + 5] = rect.h;
+        movers[moveCount++] = entity.index;
+        moverSizeSum += Math.max(rect.w, rect.h);
+    }
+    
+    /**
+     * Call when an item is added to or removed from the world. Does nothing unless the tick is sampled.
+     */
+    public void recordChurn(float x, float y, float width, float height) {
+        if (!sampling || churnCount == MAX_MOVES) return;
+        
+        churn[churnCount * 4] = x;
+        churn[churnCount * 4 + 1] = y;
+        churn[churnCount * 4 + 2] = width;
+        churn[churnCount * 4 + 3] = height;
+        churnCount++;
+    }
+    
+    /**
+     * Call after the spawns and removals of the tick have been flushed. Adds up the cost of a sampled tick for every
+     * cell size.
+     */
+    public void endTick() {
+        if (!sampling) return;
+        sampling = false;
+        if (moveCount == 0) return;
+        
+        if (sizes[0] == 0) {
+            moverSize = (float) (moverSizeSum / moveCount);
+            sizes[0] = cellSize;
+            for (int i = 0; i < FACTORS.length; i++) {
+                sizes[i + 1] = Math.max(1, Math.round(FACTORS[i] * moverSize));
+            }
+        }
+        
+        sampledMoves += moveCount;
+        for (int i = 0; i < sizes.length; i++) {
+            measure(i);
+        }
+    }
+    
+    /**
+     * The mean number of candidates per move for the current cell size, or -1 if no move was sampled yet.
+     */
+    public float getCandidatesPerMove() {
+        return sampledMoves == 0 ? -1 : (float) candidates[0] / sampledMoves;
+    }
+    
+    /**
+     * The mean cost per move for the current cell size, or -1 if no move was sampled yet.
+     */
+    public float getCostPerMove() {
+        return getCostPerMove(0);
+    }
+    
+    /**
+     * The mean cost per move of the cell size at the given index of sizes, or -1 if no move was sampled yet.
+     */
+    private float getCostPerMove(int index) {
+        return sampledMoves == 0 ? -1 : (float) costs[index] / sampledMoves;
+    }
+    
+    /**
+     * The measured cell size with the lowest cost, or the current one until MIN_MOVES moves have been sampled or if no
+     * other size saves at least MIN_IMPROVEMENT of it.
+     */
+    public float getRecommendedCellSize() {
+        int best = getBest();
+        return best == 0 ? cellSize : sizes[best];
+    }
+    
+    public String report() {
+        if (sampledMoves == 0) return "Cell size " + cellSize + ": no moves sampled.";
+        
+        int best = getBest();
+        float costPerMove = getCostPerMove();
+        String report = "Cell size " + cellSize + ": " + costPerMove + " cost per move, " + getCandidatesPerMove()
+                + " of it candidates, over " + sampledMoves + " sampled moves.";
+        if (best != 0) {
+            report += " Cell size " + sizes[best] + " (" + FACTORS[best - 1] + " x the mean mover size of " + moverSize
+                    + ") costs " + getCostPerMove(best) + " with " + (float) candidates[best] / sampledMoves
+                    + " candidates (" + percentChange(costPerMove, getCostPerMove(best)) + ").";
+        }
+        if (previousCostPerMove >= 0) {
+            report += " Before the last rebuild, cell size " + previousCellSize + " cost " + previousCostPerMove
+                    + " (now " + percentChange(previousCostPerMove, costPerMove) + ").";
+        }
+        return report;
+    }
+    
+    private static String percentChange(float from, float to) {
+        int percent = from == 0 ? 0 : Math.round((to - from) / from * 100);
+        return (percent > 0 ? "+" : "") + percent + "%";
+    }
+    
+    /**
+     * The index in sizes of the recommended cell size, 0 for the current one.
+     */
+    private int getBest() {
+        if (sampledMoves < MIN_MOVES) return 0;
+        
+        int best = 0;
+        for (int i = 1; i < costs.length; i++) {
+            if (costs[i] < costs[best]) best = i;
+        }
+        if (costs[best] > costs[0] * (1 - MIN_IMPROVEMENT)) return 0;
+        return best;
+    }
+    
+    /**
+     * Adds the cost of the recorded moves, adds, and removes to the totals of the cell size at the given index, as if
+     * the world had that size. Candidates are the distinct items other than the mover in the cells of a move, found in a
+     * grid made of a sorted array of keys, one for every cell an item covers.
+     */
+    private void measure(int index) {
+        float size = sizes[index];
+        keyCount = 0;
+        for (int i = 0; i < rectCount; i++) {
+            float width = rects[i * 4 + 2];
+            if (width < 0) continue;
+            
+            float x = rects[i * 4];
+            float y = rects[i * 4 + 1];
+            int left = toCell(x, size);
+            int right = toLastCell(x + width, size);
+            int bottom = toCell(y, size);
+            int top = toLastCell(y + rects[i * 4 + 3], size);
+            int count = (right - left + 1) * (top - bottom + 1);
+            if (keyCount + count > keys.length) keys = Arrays.copyOf(keys, Math.max(keys.length * 2, keyCount + count));
+            for (int cy = bottom; cy <= top; cy++) {
+                for (int cx = left; cx <= right; cx++) {
+                    keys[keyCount++] = cellKey(cx, cy) << BITS | i;
+                }
+            }
+        }
+        Arrays.sort(keys, 0, keyCount);
+        if (stamps.length < rectCount) stamps = new int[rectCount * 2];
+        
+        long candidates = 0;
+        long cells = 0;
+        for (int m = 0; m < moveCount; m++) {
+            int mover = movers[m];
+            float startX = moves[m * 6];
+            float startY = moves[m * 6 + 1];
+            float goalX = moves[m * 6 + 2];
+            float goalY = moves[m * 6 + 3];
+            float width = moves[m * 6 + 4];
+            float height = moves[m * 6 + 5];
+            
+            //jbump looks for candidates in the cells covered by both the start and the goal rect
+            int left = toCell(Math.min(startX, goalX), size);
+            int bottom = toCell(Math.min(startY, goalY), size);
+            int right = toLastCell(Math.max(startX, goalX) + width, size);
+            int top = toLastCell(Math.max(startY, goalY) + height, size);
+            cells += (right - left + 1) * (top - bottom + 1);
+            if (++stamp == 0) {
+                Arrays.fill(stamps, 0);
+                stamp = 1;
+            }
+            for (int cy = bottom; cy <= top; cy++) {
+                for (int cx = left; cx <= right; cx++) {
+                    long cell = cellKey(cx, cy);
+                    for (int k = lowerBound(cell << BITS); k < keyCount && keys[k] >>> BITS == cell; k++) {
+                        int item = (int) (keys[k] & MASK);
+                        if (item != mover && stamps[item] != stamp) {
+                            stamps[item] = stamp;
+                            candidates++;
+                        }
+                    }
+                }
+            }
+            
+            //the item leaves its cells and enters new ones when the cells of its rect change
+            if (toCell(startX, size) != toCell(goalX, size) || toCell(startY, size) != toCell(goalY, size)
+                    || toLastCell(startX + width, size) != toLastCell(goalX + width, size)
+                    || toLastCell(startY + height, size) != toLastCell(goalY + height, size)) {
+                cells += countCells(startX, startY, width, height, size) + countCells(goalX, goalY, width, height, size);
+            }
+        }
+        
+        for (int i = 0; i < churnCount; i++) {
+            cells += countCells(churn[i * 4], churn[i * 4 + 1], churn[i * 4 + 2], churn[i * 4 + 3], size);
+        }
+        
+        this.candidates[index] += candidates;
+        costs[index] += candidates + cells;
+    }
+    
+    private static int countCells(float x, float y, float width, float height, float size) {
+        return (toLastCell(x + width, size) - toCell(x, size) + 1) * (toLastCell(y + height, size) - toCell(y, size) + 1);
+    }
+    
+    private int lowerBound(long key) {
+        int low = 0;
+        int high = keyCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (keys[middle] < key) low = middle + 1;
+            else high = middle;
+        }
+        return low;
+    }
+    
+    //the same cells as the grid of jbump
+    private static int toCell(float position, float size) {
+        return (int) Math.floor(position / size) + 1;
+    }
+    
+    private static int toLastCell(float position, float size) {
+        return (int) Math.ceil(position / size);
+    }
+    
+    private static long cellKey(int cx, int cy) {
+        return (long) (cx + OFFSET & MASK) << BITS | cy + OFFSET & MASK;
+    }
+}
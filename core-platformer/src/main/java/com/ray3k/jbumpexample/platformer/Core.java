@@ -26,29 +26,60 @@ package com.ray3k.jbumpexample.platformer;
 import com.badlogic.gdx.ApplicationAdapter;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Input.Keys;
-import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.GL20;
 import com.badlogic.gdx.graphics.OrthographicCamera;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.g2d.TextureAtlas;
-import com.badlogic.gdx.utils.SnapshotArray;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.TimeUtils;
 import com.badlogic.gdx.utils.viewport.ExtendViewport;
+import com.dongbat.jbump.CollisionFilter;
 import com.dongbat.jbump.Item;
-import com.dongbat.jbump.Rect;
 import com.dongbat.jbump.World;
 import space.earlygrey.shapedrawer.ShapeDrawer;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+
 /**
  * Initiates the main logic of the game, runs the main game loop, and renders the entities.
  */
 public class Core extends ApplicationAdapter {
 	public static SpriteBatch spriteBatch;
 	public static TextureAtlas textureAtlas;
+	/**
+	 * Loads the Assets in the background. Disposing it disposes the atlas and the sounds.
+	 */
+	public static AssetManager assetManager;
+	/**
+	 * Shown until assetManager has finished, then null.
+	 */
+	public LoadingScreen loadingScreen;
 	public static ShapeDrawer shapeDrawer;
 	public static ExtendViewport viewport;
 	public static OrthographicCamera camera;
-	public static SnapshotArray<Entity> entities;
+	public static EntityManager entities;
 	public static World<Entity> world;
+	/**
+	 * Rebuilds the world with the cell size recommended by cellSizeTuner whenever the level is reset or reloaded.
+	 */
+	public static boolean AUTO_CELL_SIZE;
+	/**
+	 * Compares the candidates checked per move for the current cell size and the sizes around the moving items.
+	 */
+	public static final CellSizeTuner cellSizeTuner = new CellSizeTuner();
+	/**
+	 * Shows hitboxes and frame statistics. Null when running without graphics.
+	 */
+	public static DebugOverlay debugOverlay;
+	/**
+	 * Draws the blocks. Null when running without graphics.
+	 */
+	public static StaticLayer staticLayer;
 	public static final String MAP =
 			        "+--------------------------------------------------------------------------------------------------+\n" +
 					"+------------------------+----------------------------------------------------------------------++-+\n" +
@@ -61,89 +92,441 @@ public class Core extends ApplicationAdapter {
 					"+p----------------+----e-e-e----++--------------------e-----e----------e-----e----e----------------+\n" +
 					"++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++";
 	public static float TILE_DIMENSION = 100f;
+	/**
+	 * The cell size of the world when the simulation is created, the size of a tile by default.
+	 */
+	public static float CELL_SIZE = TILE_DIMENSION;
+	/**
+	 * The level to load instead of MAP, or null to load MAP. Either a map file in the text format of MAP, a BinaryLevel
+	 * file, or a directory written by LevelChunker to stream.
+	 */
+	public static String LEVEL;
+	/**
+	 * Pages the chunks of LEVEL in and out around the player. Null when MAP is loaded.
+	 */
+	public static LevelStreamer levelStreamer;
+	/**
+	 * Recycle the enemies and colliders that a streamed level pages in and out, and the ones of a reloaded map.
+	 */
+	public static final EntityPool<Enemy> enemyPool = new EntityPool<Enemy>(16) {
+		@Override
+		protected Enemy newObject() {
+			return new Enemy();
+		}
+	};
+	public static final EntityPool<Block> blockPool = new EntityPool<Block>(64) {
+		@Override
+		protected Block newObject() {
+			return new Block(0, 0);
+		}
+	};
+	/**
+	 * The number of simulation ticks per second. Lower it to run the physics at a lower rate than the display.
+	 */
+	public static float TICK_RATE = 60f;
+	/**
+	 * The most ticks simulated in one frame. Time that could not be caught up after a hitch is dropped.
+	 */
+	public static int MAX_TICKS_PER_FRAME = 5;
+	/**
+	 * How far the current frame is between the previous and the current tick, from 0 to 1.
+	 */
+	public static float interpolation;
+	/**
+	 * Latched until the next tick so a jump is not lost on frames that do not run a tick.
+	 */
+	public static boolean upJustPressed;
+	public static Player player;
+	public static ActivityRegion activityRegion;
+	/**
+	 * The entities inside the activity region this tick, in the order of the entity list.
+	 */
+	public static final Array<Entity> activeEntities = new Array<>();
+	public float accumulator;
+	/**
+	 * The input of the player for the current tick. Entities read it instead of polling Gdx.input.
+	 */
+	public static final TickInput input = new TickInput();
+	/**
+	 * Starts the sounds requested during the ticks of a frame, once per frame on the render thread.
+	 */
+	public static final SoundManager sounds = new SoundManager();
+	/**
+	 * Times the phases of every frame while its HUD or CSV stream is on.
+	 */
+	public static final FrameProfiler profiler = new FrameProfiler();
+	/**
+	 * A file to record the input of every tick to, or null. See InputLog.
+	 */
+	public static String RECORD_FILE;
+	/**
+	 * A file recorded with RECORD_FILE to drive the simulation from instead of the player, or null.
+	 */
+	public static String REPLAY_FILE;
+	/**
+	 * Records or plays back the input while RECORD_FILE or REPLAY_FILE is set. Null once a replay has ended.
+	 */
+	public static InputLog inputLog;
+	/**
+	 * The state right after the map was loaded. F5 restores it instead of loading the map again.
+	 */
+	public Snapshot startSnapshot;
+	/**
+	 * Captured with F6 and restored with F7. It is also written to CHECKPOINT_FILE so it survives a restart.
+	 */
+	public Snapshot checkpoint;
+	public static final String CHECKPOINT_FILE = "checkpoint-platformer.snapshot";
+	/**
+	 * How far outside the view entities are still drawn, so sprites larger than their item don't pop in.
+	 */
+	public static final float CULL_MARGIN = 150f;
+	/**
+	 * The entities found in view by the last visibility pass, in the order of the entity list.
+	 */
+	public static final Array<Entity> visibleEntities = new Array<>();
+	private static final ArrayList<Item> visibleItems = new ArrayList<>();
+	public static final ListOrderComparator LIST_ORDER_COMPARATOR = new ListOrderComparator();
+	private final IntArray colliders = new IntArray();
 
 	@Override
 	public void create() {
 		spriteBatch = new SpriteBatch();
-		textureAtlas = new TextureAtlas("textures.atlas");
 		camera = new OrthographicCamera();
 		viewport = new ExtendViewport(800, 800, camera);
-		entities = new SnapshotArray<>();
-		world = new World<>(TILE_DIMENSION);
+		debugOverlay = new DebugOverlay();
+		staticLayer = new StaticLayer();
+		
+		//decode the atlas and the sounds on the loader thread while the loading screen is shown
+		loadingScreen = new LoadingScreen();
+		assetManager = new AssetManager();
+		Assets.queue(assetManager);
+	}
+	
+	/**
+	 * Called on the first frame after the Assets have loaded. Hands the loaded handles to the entity classes, then
+	 * creates the simulation.
+	 */
+	protected void assetsLoaded() {
+		textureAtlas = assetManager.get(Assets.ATLAS, TextureAtlas.class);
 		shapeDrawer = new ShapeDrawer(spriteBatch, textureAtlas.findRegion("white"));
+		Assets.resolve(textureAtlas, assetManager);
+		loadingScreen.dispose();
+		loadingScreen = null;
+		
+		createSimulation();
+	}
+	
+	/**
+	 * Creates the world and the entity list, then loads the map. Nothing here touches the graphics context so it can
+	 * also be driven by a headless backend. textureAtlas and camera must be set and Assets.resolve() called before
+	 * calling.
+	 */
+	protected void createSimulation() {
+		entities = new EntityManager();
+		world = cellSizeTuner.createWorld(CELL_SIZE);
+		activityRegion = new ActivityRegion();
+		
+		//seed the random numbers from the input log so a replay draws the same ones as the recording
+		if (REPLAY_FILE != null) inputLog = InputLog.replay(Gdx.files.local(REPLAY_FILE));
+		else if (RECORD_FILE != null) inputLog = InputLog.record(Gdx.files.local(RECORD_FILE), TimeUtils.millis());
+		if (inputLog != null) MathUtils.random.setSeed(inputLog.seed);
 		
 		//load map and spawn entities
 		loadMap();
+		startSnapshot = new Snapshot();
+		startSnapshot.capture();
+		checkpoint = new Snapshot();
 	}
 	
-	private void loadMap() {
-		for (Entity entity : entities) {
-			if (entity.item != null) world.remove(entity.item);
-		}
+	/**
+	 * Removes every entity and loads LEVEL, or MAP if LEVEL is null.
+	 */
+	protected void loadMap() {
 		entities.clear();
+		if (levelStreamer != null) levelStreamer.dispose();
+		levelStreamer = null;
 		
-		String[] lines = MAP.split("\n");
+		//a level is a text map, a binary level, or a directory of chunks
+		if (LEVEL == null) {
+			loadTextMap(MAP);
+		} else {
+			FileHandle file = Gdx.files.internal(LEVEL);
+			if (file.isDirectory()) loadChunkedLevel(file);
+			else if (file.extension().equals(BinaryLevel.EXTENSION)) loadBinaryLevel(BinaryLevel.read(file));
+			else loadTextMap(file.readString());
+		}
+	}
+	
+	/**
+	 * Parses a map in the text format of MAP and merges its blocks into colliders.
+	 */
+	protected void loadTextMap(String map) {
+		String[] lines = map.replace("\r", "").split("\n");
+		boolean[][] solid = new boolean[lines.length][];
 		for (int j = 0; j < lines.length; j++) {
 			String line = lines[j];
+			solid[j] = new boolean[line.length()];
 			for (int i = 0; i < line.length(); i++) {
-				Entity entity = null;
-				if (line.charAt(i) == '+') entity = new Block();
-				else if (line.charAt(i) == 'p') entity = new Player();
-				else if (line.charAt(i) == 'e') entity = new Enemy();
-				
-				if (entity != null) {
-					entities.add(entity);
-					entity.x = i * TILE_DIMENSION;
-					entity.y = (lines.length - j) * TILE_DIMENSION;
-					if (entity.item != null) {
-						world.add(entity.item, entity.x + entity.bboxX, entity.y + entity.bboxY, entity.bboxWidth, entity.bboxHeight);
-					}
-				}
+				if (line.charAt(i) == '+') solid[j][i] = true;
+				else if (line.charAt(i) == 'p') spawn(player = new Player(), i, j, lines.length);
+				else if (line.charAt(i) == 'e') spawn(enemyPool.obtain(), i, j, lines.length);
 			}
 		}
+		
+		//cover the blocks with as few colliders as possible
+		colliders.clear();
+		BlockMerger.merge(solid, colliders);
+		for (int k = 0; k < colliders.size; k += 4) {
+			addCollider(colliders.get(k), colliders.get(k + 1), colliders.get(k + 2), colliders.get(k + 3), lines.length);
+		}
+		entities.flush();
+		
+		//bake the block graphics
+		if (staticLayer != null) staticLayer.build(solid);
+	}
+	
+	/**
+	 * Spawns the entities of a compiled level. The colliders are read as they were merged when the level was compiled
+	 * and the tile grid is only copied out if there is a StaticLayer to draw it.
+	 */
+	protected void loadBinaryLevel(BinaryLevel level) {
+		spawn(player = new Player(), level.playerColumn, level.playerRow, level.rows);
+		for (int i = 0; i < level.enemyCount; i++) {
+			spawn(enemyPool.obtain(), level.getEnemyColumn(i), level.getEnemyRow(i), level.rows);
+		}
+		for (int i = 0; i < level.colliderCount; i++) {
+			addCollider(level.getColliderColumn(i), level.getColliderRow(i), level.getColliderWidth(i),
+					level.getColliderHeight(i), level.rows);
+		}
+		entities.flush();
+		
+		//bake the block graphics
+		if (staticLayer != null) staticLayer.build(level.getSolid());
+	}
+	
+	/**
+	 * Spawns the player of a chunked level and loads the chunks around it. The rest of the level is loaded as the player
+	 * moves.
+	 */
+	protected void loadChunkedLevel(FileHandle directory) {
+		levelStreamer = new LevelStreamer(directory);
+		spawn(player = new Player(), levelStreamer.playerColumn, levelStreamer.playerRow, levelStreamer.rows);
+		
+		levelStreamer.update(player.x);
+		entities.flush();
+	}
+	
+	/**
+	 * Places an entity on a tile of a map with the given number of rows and queues it to be added.
+	 */
+	private static void spawn(Entity entity, int column, int row, int rows) {
+		entity.x = column * TILE_DIMENSION;
+		entity.y = (rows - row) * TILE_DIMENSION;
+		entity.savePosition();
+		entities.add(entity);
+	}
+	
+	/**
+	 * Queues a collider covering a rectangle of tiles of a map with the given number of rows.
+	 */
+	private static void addCollider(int column, int row, int width, int height, int rows) {
+		Block collider = blockPool.obtain();
+		collider.bboxWidth = width * TILE_DIMENSION;
+		collider.bboxHeight = height * TILE_DIMENSION;
+		collider.x = column * TILE_DIMENSION;
+		collider.y = (rows - row - height + 1) * TILE_DIMENSION;
+		collider.savePosition();
+		entities.add(collider);
 	}
 
 	@Override
 	public void render() {
-		//allow player to reset the game
-		if (Gdx.input.isKeyJustPressed(Keys.F5)) {
-			loadMap();
+		//show the progress until the assets have loaded
+		if (loadingScreen != null) {
+			if (!assetManager.update()) {
+				loadingScreen.draw(assetManager.getProgress());
+				return;
+			}
+			assetsLoaded();
+		}
+		
+		if (Gdx.input.isKeyJustPressed(FrameProfiler.HUD_KEY)) profiler.toggleHud();
+		if (Gdx.input.isKeyJustPressed(FrameProfiler.CSV_KEY)) profiler.toggleCsv();
+		profiler.begin(FrameProfiler.FRAME);
+		
+		//allow player to reset the game, except while recording or replaying since restarts are not part of an input log
+		if (Gdx.input.isKeyJustPressed(Keys.F5) && inputLog == null) {
+			//the chunks of a streamed level are not part of a snapshot
+			if (levelStreamer != null) loadMap();
+			else startSnapshot.restore();
+			tuneCellSize();
+		}
+		
+		//save and load a checkpoint
+		if (Gdx.input.isKeyJustPressed(Keys.F6) && inputLog == null && levelStreamer == null) {
+			checkpoint.capture();
+			checkpoint.write(Gdx.files.local(CHECKPOINT_FILE));
+		}
+		if (Gdx.input.isKeyJustPressed(Keys.F7) && inputLog == null && levelStreamer == null && Gdx.files.local(CHECKPOINT_FILE).exists()) {
+			checkpoint.read(Gdx.files.local(CHECKPOINT_FILE));
+			checkpoint.restore();
+		}
+		
+		if (Gdx.input.isKeyJustPressed(DebugOverlay.TOGGLE_KEY)) debugOverlay.toggle();
+		debugOverlay.begin();
+		
+		//run the simulation in fixed ticks
+		if (Gdx.input.isKeyJustPressed(Keys.UP)) upJustPressed = true;
+		float tickTime = 1 / TICK_RATE;
+		accumulator += Gdx.graphics.getDeltaTime();
+		int ticks = 0;
+		while (accumulator >= tickTime && ticks < MAX_TICKS_PER_FRAME) {
+			tick(tickTime);
+			upJustPressed = false;
+			accumulator -= tickTime;
+			ticks++;
 		}
+		if (accumulator >= tickTime) accumulator %= tickTime;
+		interpolation = accumulator / tickTime;
+		profiler.begin(FrameProfiler.SOUND);
+		sounds.flush();
+		profiler.end(FrameProfiler.SOUND);
+		
+		//follow the player smoothly between ticks
+		if (player != null) camera.position.set(player.getDrawX(), player.getDrawY(), 0);
 		
 		Gdx.gl.glClearColor(1, 1, 1, 1);
 		Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
 		
-		//prepare batch
+		//draw the blocks
 		viewport.apply();
+		profiler.begin(FrameProfiler.STATIC_LAYER);
+		staticLayer.draw(camera);
+		profiler.end(FrameProfiler.STATIC_LAYER);
+		
+		//prepare batch
 		spriteBatch.setProjectionMatrix(camera.combined);
 		spriteBatch.begin();
 		
-		//call logic on all entities
-		float delta = Gdx.graphics.getDeltaTime();
-		Object[] ents = entities.begin();
-		for (int i = 0, n = entities.size; i < n; i++) {
-			Entity entity = (Entity) ents[i];
-			entity.act(delta);
+		//draw the entities in view
+		profiler.begin(FrameProfiler.CULL);
+		findVisibleEntities();
+		profiler.end(FrameProfiler.CULL);
+		profiler.begin(FrameProfiler.DRAW);
+		for (int i = 0; i < visibleEntities.size; i++) {
+			visibleEntities.get(i).draw();
 		}
-		entities.end();
+		profiler.end(FrameProfiler.DRAW);
 		
-		//draw all entities
-		for (Entity entity : entities) {
-			entity.draw();
+		//draw debug
+		profiler.begin(FrameProfiler.DEBUG);
+		if (debugOverlay.enabled) debugOverlay.draw();
+		profiler.draw();
+		profiler.end(FrameProfiler.DEBUG);
+		
+		spriteBatch.end();
+		profiler.end(FrameProfiler.FRAME);
+		profiler.endFrame();
+	}
+	
+	/**
+	 * Logs the report of cellSizeTuner and, if AUTO_CELL_SIZE is set and it recommends another cell size, moves every
+	 * item into a world with that size. Only called between ticks so no entity holds on to the old world.
+	 */
+	protected void tuneCellSize() {
+		Gdx.app.log("Core", cellSizeTuner.report());
+		float cellSize = cellSizeTuner.getRecommendedCellSize();
+		if (AUTO_CELL_SIZE && cellSize != cellSizeTuner.cellSize) {
+			world = cellSizeTuner.rebuild(cellSize);
+			Gdx.app.log("Core", "Rebuilt the world with cell size " + cellSize + ".");
 		}
+	}
+	
+	/**
+	 * Collects the entities that overlap the view of the camera plus CULL_MARGIN. Entities with items are found by
+	 * querying the world. The few entities without items are checked against the view directly.
+	 */
+	private void findVisibleEntities() {
+		float halfWidth = camera.viewportWidth * camera.zoom / 2 + CULL_MARGIN;
+		float halfHeight = camera.viewportHeight * camera.zoom / 2 + CULL_MARGIN;
+		float left = camera.position.x - halfWidth;
+		float bottom = camera.position.y - halfHeight;
 		
-		//draw debug
-		for (Entity entity : entities) {
-			Item item = entity.item;
-			if (item != null) {
-				shapeDrawer.setColor(Color.RED);
-				shapeDrawer.setDefaultLineWidth(1.0f);
-				Rect rect = world.getRect(item);
-				shapeDrawer.rectangle(rect.x, rect.y, rect.w, rect.h);
+		visibleEntities.clear();
+		world.queryRect(left, bottom, halfWidth * 2, halfHeight * 2, CollisionFilter.defaultFilter, visibleItems);
+		for (int i = 0; i < visibleItems.size(); i++) {
+			visibleEntities.add((Entity) visibleItems.get(i).userData);
+		}
+		
+		Array<Entity> entitiesWithoutItems = entities.entitiesWithoutItems;
+		for (int i = 0; i < entitiesWithoutItems.size; i++) {
+			Entity entity = entitiesWithoutItems.get(i);
+			if (entity.isInView(left, bottom, left + halfWidth * 2, bottom + halfHeight * 2)) visibleEntities.add(entity);
+		}
+		
+		//keep the draw order of the entity list
+		visibleEntities.sort(LIST_ORDER_COMPARATOR);
+	}
+	
+	/**
+	 * Fills Core.input from the player, or from inputLog while it records or replays, then runs one tick with the delta
+	 * of the input. When a replay runs out of ticks the player takes over.
+	 */
+	protected void tick(float delta) {
+		profiler.begin(FrameProfiler.INPUT);
+		if (inputLog == null) {
+			input.poll(delta);
+		} else if (!inputLog.next(input, delta)) {
+			Gdx.app.log("Core", "Replay of " + REPLAY_FILE + " ended after " + inputLog.ticks + " ticks.");
+			inputLog.dispose();
+			inputLog = null;
+			input.poll(delta);
+		}
+		profiler.end(FrameProfiler.INPUT);
+		update(input.delta);
+	}
+	
+	/**
+	 * Advances the simulation by one tick of the given length.
+	 */
+	public void update(float delta) {
+		//page the chunks of a streamed level in and out around the player
+		profiler.begin(FrameProfiler.STREAM);
+		if (levelStreamer != null && player.index != -1) levelStreamer.update(player.x);
+		profiler.end(FrameProfiler.STREAM);
+		
+		//only the entities near the player are simulated, the rest stay dormant
+		profiler.begin(FrameProfiler.ACTIVITY);
+		activityRegion.findActiveEntities(activeEntities);
+		profiler.end(FrameProfiler.ACTIVITY);
+		
+		//remember where every entity started this tick for interpolation
+		for (int i = 0, n = activeEntities.size; i < n; i++) {
+			activeEntities.get(i).savePosition();
+		}
+		
+		//call logic on the active entities, skipping the ones removed earlier in this tick
+		profiler.begin(FrameProfiler.ACT);
+		cellSizeTuner.beginTick();
+		for (int i = 0, n = activeEntities.size; i < n; i++) {
+			Entity entity = activeEntities.get(i);
+			if (entity.removed) continue;
+			
+			if (profiler.enabled) {
+				long start = System.nanoTime();
+				entity.act(delta);
+				profiler.addEntityTime(entity.category, System.nanoTime() - start);
+			} else {
+				entity.act(delta);
 			}
 		}
+		profiler.end(FrameProfiler.ACT);
 		
-		spriteBatch.end();
+		//apply the spawns and removals queued during the tick
+		profiler.begin(FrameProfiler.FLUSH);
+		entities.flush();
+		profiler.end(FrameProfiler.FLUSH);
+		cellSizeTuner.endTick();
 	}
 	
 	@Override
@@ -154,6 +537,22 @@ public class Core extends ApplicationAdapter {
 	@Override
 	public void dispose() {
 		spriteBatch.dispose();
-		textureAtlas.dispose();
+		debugOverlay.dispose();
+		staticLayer.dispose();
+		if (levelStreamer != null) levelStreamer.dispose();
+		if (loadingScreen != null) loadingScreen.dispose();
+		assetManager.dispose();
+		if (inputLog != null) inputLog.dispose();
+		profiler.dispose();
+	}
+	
+	/**
+	 * Sorts entities by their position in the entity list.
+	 */
+	public static class ListOrderComparator implements Comparator<Entity> {
+		@Override
+		public int compare(Entity o1, Entity o2) {
+			return Integer.compare(o1.index, o2.index);
+		}
 	}
 }
\ No newline at end of file
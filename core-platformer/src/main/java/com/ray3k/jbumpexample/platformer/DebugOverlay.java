@@ -0,0 +1,163 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) 2020 Raymond Buckley
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package com.ray3k.jbumpexample.platformer;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Input.Keys;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.graphics.profiling.GLProfiler;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.StringBuilder;
+import com.dongbat.jbump.Rect;
+
+import static com.ray3k.jbumpexample.platformer.Core.*;
+
+/**
+ * Draws the hitboxes of the entities in view and a panel of per-frame statistics. Toggled at runtime with TOGGLE_KEY.
+ * While disabled nothing is collected or drawn and the GL profiler is turned off.
+ */
+public class DebugOverlay implements Disposable {
+    public static final int TOGGLE_KEY = Keys.F1;
+    /**
+     * The number of collisions returned by World.move since the start of the frame. Entities add to it after moving.
+     */
+    public static int collisions;
+    public boolean enabled;
+    private final GLProfiler profiler;
+    private final BitmapFont font;
+    private final Matrix4 screenMatrix = new Matrix4();
+    private final Array<Color> colors = new Array<>();
+    private final Array<FloatArray> rectangles = new Array<>();
+    private final StringBuilder stringBuilder = new StringBuilder();
+    private int frameCollisions;
+    private int drawCalls;
+    
+    public DebugOverlay() {
+        profiler = new GLProfiler(Gdx.graphics);
+        font = new BitmapFont();
+        font.setColor(Color.BLACK);
+    }
+    
+    public void toggle() {
+        enabled = !enabled;
+        if (enabled) profiler.enable();
+        else profiler.disable();
+    }
+    
+    /**
+     * Call at the start of every frame, before the simulation runs. Stores the counters of the previous frame and
+     * resets them.
+     */
+    public void begin() {
+        if (enabled) {
+            drawCalls = profiler.getDrawCalls();
+            profiler.reset();
+            frameCollisions = collisions;
+        }
+        collisions = 0;
+    }
+    
+    /**
+     * Draws the hitboxes of Core.visibleEntities grouped by colour, then the statistics panel. Call between begin() and
+     * end() of the SpriteBatch.
+     */
+    public void draw() {
+        for (int i = 0; i < visibleEntities.size; i++) {
+            Entity entity = visibleEntities.get(i);
+            if (entity.item != null) {
+                Rect rect = world.getRect(entity.item);
+                rectangles(colorOf(entity)).add(rect.x, rect.y, rect.w, rect.h);
+            }
+        }
+        
+        //change the colour once per group instead of once per rectangle
+        shapeDrawer.setDefaultLineWidth(1.0f);
+        for (int i = 0; i < colors.size; i++) {
+            FloatArray group = rectangles.get(i);
+            if (group.size == 0) continue;
+            
+            shapeDrawer.setColor(colors.get(i));
+            for (int j = 0; j < group.size; j += 4) {
+                shapeDrawer.rectangle(group.get(j), group.get(j + 1), group.get(j + 2), group.get(j + 3));
+            }
+            group.clear();
+        }
+        
+        stringBuilder.setLength(0);
+        stringBuilder.append("entities: ").append(entities.size);
+        stringBuilder.append("\nactive entities: ").append(activeEntities.size);
+        if (levelStreamer != null) {
+            stringBuilder.append("\nresident chunks: ").append(levelStreamer.getResidentCount()).append("/").append(levelStreamer.chunkCount);
+        }
+        stringBuilder.append("\nenemy pool hits/misses: ").append(enemyPool.hits).append("/").append(enemyPool.misses);
+        stringBuilder.append("\nblock pool hits/misses: ").append(blockPool.hits).append("/").append(blockPool.misses);
+        stringBuilder.append("\nworld items: ").append(world.countItems());
+        stringBuilder.append("\ncollisions: ").append(frameCollisions);
+        stringBuilder.append("\ndraw calls: ").append(drawCalls);
+        stringBuilder.append("\nfps: ").append(Gdx.graphics.getFramesPerSecond());
+        stringBuilder.append("\nsound plays/coalesced/dropped: ").append(sounds.plays).append("/").append(sounds.coalesced).append("/").append(sounds.dropped);
+        stringBuilder.append("\ncell size: ").append((int) cellSizeTuner.cellSize).append(", recommended: ").append((int) cellSizeTuner.getRecommendedCellSize());
+        stringBuilder.append("\ncell cost/candidates per 100 moves: ").append((int) (Math.max(0, cellSizeTuner.getCostPerMove()) * 100)).append("/").append((int) (Math.max(0, cellSizeTuner.getCandidatesPerMove()) * 100));
+        
+        //draw the panel in screen coordinates
+        screenMatrix.setToOrtho2D(0, 0, Gdx.graphics.getWidth(), Gdx.graphics.getHeight());
+        spriteBatch.setProjectionMatrix(screenMatrix);
+        font.draw(spriteBatch, stringBuilder, 10, Gdx.graphics.getHeight() - 10);
+        spriteBatch.setProjectionMatrix(camera.combined);
+    }
+    
+    private FloatArray rectangles(Color color) {
+        int index = colors.indexOf(color, true);
+        if (index == -1) {
+            colors.add(color);
+            rectangles.add(new FloatArray());
+            index = colors.size - 1;
+        }
+        return rectangles.get(index);
+    }
+    
+    /**
+     * Picks the colour of a hitbox so different kinds of entities can be told apart.
+     */
+    private static Color colorOf(Entity entity) {
+        switch (entity.category) {
+            case Category.BLOCK:
+                return Color.BLUE;
+            case Category.ENEMY:
+                return Color.RED;
+            default:
+                return Color.GREEN;
+        }
+    }
+    
+    @Override
+    public void dispose() {
+        profiler.disable();
+        font.dispose();
+    }
+}
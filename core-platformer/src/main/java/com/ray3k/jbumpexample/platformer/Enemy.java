@@ -25,21 +25,38 @@ package com.ray3k.jbumpexample.platformer;
 
 import com.badlogic.gdx.graphics.g2d.Animation;
 import com.badlogic.gdx.graphics.g2d.Animation.PlayMode;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
 import com.badlogic.gdx.graphics.g2d.TextureAtlas.AtlasRegion;
 import com.dongbat.jbump.*;
 import com.dongbat.jbump.Response.Result;
 
+import java.nio.ByteBuffer;
+
+import static com.ray3k.jbumpexample.platformer.Core.enemyPool;
+
 /**
  * Enemy that can be destroyed by jumping on its head
  */
 public class Enemy extends Entity {
-    public static final Animation<AtlasRegion> enemy = new Animation<>(1 / 5f, Core.textureAtlas.findRegions("m-enemy"), PlayMode.LOOP);
-    public static final Animation<AtlasRegion> squashed = new Animation<>(1 / 30f, Core.textureAtlas.findRegions("m-enemy-squashed"), PlayMode.LOOP);
+    public static Animation<AtlasRegion> enemy;
+    public static Animation<AtlasRegion> squashed;
     public static final float GRAVITY = 3000f;
     public static final float RUN_SPEED = 200f;
-    public static final EnemyCollisionFilter ENEMY_COLLISION_FILTER = new EnemyCollisionFilter();
     public float deathTimer;
     public static final float DEATH_TIME = 1f;
+    /**
+     * Counts how many times the enemy was returned to the pool. Lets a holder of the enemy tell whether it has been taken
+     * out of the game and possibly spawned again elsewhere since.
+     */
+    public int generation;
+    
+    /**
+     * Builds the animations of the enemies. Called by Assets.resolve().
+     */
+    public static void resolve(TextureAtlas atlas) {
+        enemy = new Animation<>(1 / 5f, atlas.findRegions("m-enemy"), PlayMode.LOOP);
+        squashed = new Animation<>(1 / 30f, atlas.findRegions("m-enemy-squashed"), PlayMode.LOOP);
+    }
     
     public Enemy() {
         animation = enemy;
@@ -49,6 +66,7 @@ public class Enemy extends Entity {
         bboxWidth = 90;
         bboxHeight = 90;
         item = new Item<>(this);
+        setCategory(Category.ENEMY);
         
         //move left initially
         deltaX = -RUN_SPEED;
@@ -66,17 +84,9 @@ public class Enemy extends Entity {
         y += delta * deltaY;
     
         //handle collisions
-        Result result = Core.world.move(item, x + bboxX, y + bboxY, ENEMY_COLLISION_FILTER);
-        for (int i = 0; i < result.projectedCollisions.size(); i++) {
-            Collision collision = result.projectedCollisions.get(i);
-            Entity other = (Entity) collision.other.userData;
-            if (other instanceof Block || other instanceof Enemy) {
-                if (collision.normal.x != 0) deltaX *= -1;
-                if (collision.normal.y != 0) {
-                    deltaY = 0;
-                }
-            }
-        }
+        Core.cellSizeTuner.recordMove(this, x + bboxX, y + bboxY);
+        Result result = Core.world.move(item, x + bboxX, y + bboxY, Category.FILTER);
+        handleContacts(result);
     
         //update position based on collisions
         Rect rect = Core.world.getRect(item);
@@ -87,12 +97,64 @@ public class Enemy extends Entity {
         if (deathTimer > 0) {
             deathTimer -= delta;
             if (deathTimer <= 0) {
-                Core.entities.removeValue(this, true);
-                Core.world.remove(item);
+                Core.entities.remove(this);
             }
         }
     }
     
+    @Override
+    public void reset() {
+        super.reset();
+        animation = enemy;
+        gravityY = -GRAVITY;
+        deathTimer = 0;
+        deltaX = -RUN_SPEED;
+    }
+    
+    @Override
+    public void despawned() {
+        generation++;
+        enemyPool.free(this);
+    }
+    
+    @Override
+    public void dispatchContact(Entity receiver, Collision collision) {
+        receiver.contactEnemy(this, collision);
+    }
+    
+    @Override
+    public void contactBlock(Block block, Collision collision) {
+        bounce(collision);
+    }
+    
+    @Override
+    public void contactEnemy(Enemy enemy, Collision collision) {
+        bounce(collision);
+    }
+    
+    /**
+     * Turn around at walls and stop falling on the ground.
+     */
+    private void bounce(Collision collision) {
+        if (collision.normal.x != 0) deltaX *= -1;
+        if (collision.normal.y != 0) {
+            deltaY = 0;
+        }
+    }
+    
+    @Override
+    public void writeState(ByteBuffer buffer) {
+        super.writeState(buffer);
+        buffer.putFloat(deathTimer);
+    }
+    
+    @Override
+    public void readState(ByteBuffer buffer) {
+        super.readState(buffer);
+        deathTimer = buffer.getFloat();
+        animation = isDying() ? squashed : enemy;
+    }
+    
     public boolean isDying() {
         return deathTimer > 0;
     }
@@ -105,15 +167,4 @@ public class Enemy extends Entity {
         deltaX = 0;
         deathTimer = DEATH_TIME;
     }
-    
-    /**
-     * Slide on blocks and other enemies.
-     */
-    public static class EnemyCollisionFilter implements CollisionFilter {
-        @Override
-        public Response filter(Item item, Item other) {
-            if (other.userData instanceof Block || other.userData instanceof  Enemy) return Response.slide;
-            return null;
-        }
-    }
 }
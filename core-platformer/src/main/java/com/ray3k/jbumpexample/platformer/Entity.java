@@ -25,15 +25,25 @@ package com.ray3k.jbumpexample.platformer;
 
 import com.badlogic.gdx.graphics.g2d.Animation;
 import com.badlogic.gdx.graphics.g2d.TextureAtlas.AtlasRegion;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.utils.Pool.Poolable;
+import com.dongbat.jbump.Collision;
+import com.dongbat.jbump.Collisions;
 import com.dongbat.jbump.Item;
+import com.dongbat.jbump.Response.Result;
+
+import java.nio.ByteBuffer;
 
 import static com.ray3k.jbumpexample.platformer.Core.spriteBatch;
 
-public abstract class Entity {
+public abstract class Entity implements Poolable {
     public Animation<AtlasRegion> animation;
     public float animationTime;
     public float x;
     public float y;
+    public float previousX;
+    public float previousY;
+    public float previousRotation;
     public float bboxX;
     public float bboxY;
     public float bboxWidth;
@@ -46,13 +56,163 @@ public abstract class Entity {
     public float gravityX;
     public float gravityY;
     public Item<Entity> item;
+    /**
+     * The position of this entity in Core.entities or -1 if it is not in the game. Managed by EntityManager.
+     */
+    public int index = -1;
+    /**
+     * True while the entity is queued for removal at the end of the tick. Managed by EntityManager.
+     */
+    public boolean removed;
+    /**
+     * The row and column of this entity in Category.RESPONSES. Set with setCategory().
+     */
+    public int category = Category.NONE;
+    /**
+     * The categories this entity collides with as bits. Set with setCategory().
+     */
+    public int mask;
     
     public abstract void act(float delta);
     
+    public void setCategory(int category) {
+        this.category = category;
+        mask = Category.MASKS[category];
+    }
+    
+    /**
+     * Calls the contact handler of the receiver that matches the type of this entity. Entities that others react to
+     * override it, which dispatches a contact with two virtual calls instead of instanceof checks and casts.
+     */
+    public void dispatchContact(Entity receiver, Collision collision) {
+    
+    }
+    
+    public void contactEnemy(Enemy enemy, Collision collision) {
+    
+    }
+    
+    public void contactBlock(Block block, Collision collision) {
+    
+    }
+    
+    /**
+     * Dispatches every collision of a move to the contact handlers of this entity and counts them for the debug
+     * overlay. The collision passed to a handler is only valid during the call.
+     */
+    public void handleContacts(Result result) {
+        Collisions collisions = result.projectedCollisions;
+        DebugOverlay.collisions += collisions.size();
+        for (int i = 0; i < collisions.size(); i++) {
+            Collision collision = collisions.get(i);
+            ((Entity) collision.other.userData).dispatchContact(this, collision);
+        }
+    }
+    
+    /**
+     * Called by the EntityManager after the entity and its item have been taken out of the game.
+     */
+    public void despawned() {
+    
+    }
+    
+    /**
+     * Writes the state that changes during the game for a Snapshot. Entities with more state override both writeState()
+     * and readState() and call super first.
+     */
+    public void writeState(ByteBuffer buffer) {
+        buffer.putFloat(x).putFloat(y).putFloat(previousX).putFloat(previousY).putFloat(previousRotation);
+        buffer.putFloat(rotation).putFloat(deltaX).putFloat(deltaY).putFloat(animationTime);
+        buffer.putFloat(gravityX).putFloat(gravityY);
+        buffer.put((byte) ((flipX ? 1 : 0) | (flipY ? 2 : 0)));
+    }
+    
+    /**
+     * Reads the state written by writeState().
+     */
+    public void readState(ByteBuffer buffer) {
+        x = buffer.getFloat();
+        y = buffer.getFloat();
+        previousX = buffer.getFloat();
+        previousY = buffer.getFloat();
+        previousRotation = buffer.getFloat();
+        rotation = buffer.getFloat();
+        deltaX = buffer.getFloat();
+        deltaY = buffer.getFloat();
+        animationTime = buffer.getFloat();
+        gravityX = buffer.getFloat();
+        gravityY = buffer.getFloat();
+        byte flags = buffer.get();
+        flipX = (flags & 1) != 0;
+        flipY = (flags & 2) != 0;
+    }
+    
+    /**
+     * Restores the per-life state so a pooled entity can be spawned again. The animation, bounding box, and item are
+     * assigned once in the constructor and are kept for the lifetime of the object.
+     */
+    @Override
+    public void reset() {
+        animationTime = 0;
+        x = 0;
+        y = 0;
+        previousX = 0;
+        previousY = 0;
+        previousRotation = 0;
+        rotation = 0;
+        deltaX = 0;
+        deltaY = 0;
+        flipX = false;
+        flipY = false;
+        gravityX = 0;
+        gravityY = 0;
+    }
+    
+    /**
+     * Records the current position as the start of the next tick so draw() can interpolate between the two. Call
+     * before every tick and whenever the entity is placed without moving through the world.
+     */
+    public void savePosition() {
+        previousX = x;
+        previousY = y;
+        previousRotation = rotation;
+    }
+    
+    /**
+     * The x position blended between the last two ticks by Core.interpolation.
+     */
+    public float getDrawX() {
+        return MathUtils.lerp(previousX, x, Core.interpolation);
+    }
+    
+    /**
+     * The y position blended between the last two ticks by Core.interpolation.
+     */
+    public float getDrawY() {
+        return MathUtils.lerp(previousY, y, Core.interpolation);
+    }
+    
+    /**
+     * The rotation blended between the last two ticks by Core.interpolation, taking the shortest way around.
+     */
+    public float getDrawRotation() {
+        return MathUtils.lerpAngleDeg(previousRotation, rotation, Core.interpolation);
+    }
+    
+    /**
+     * Returns true if the current frame of the animation overlaps the given area. Used to cull entities that have no
+     * item to query the world with.
+     */
+    public boolean isInView(float left, float bottom, float right, float top) {
+        if (animation == null) return false;
+        AtlasRegion region = animation.getKeyFrame(animationTime);
+        return x < right && x + region.getRegionWidth() > left && y < top && y + region.getRegionHeight() > bottom;
+    }
+    
     public void draw() {
         if (animation != null) {
             AtlasRegion region = animation.getKeyFrame(animationTime);
-            spriteBatch.draw(region, x, y, region.getRegionWidth() / 2f, region.getRegionHeight() / 2f, region.getRegionWidth(), region.getRegionHeight(), flipX ? -1 : 1, flipY ? -1 : 1, rotation);
+            spriteBatch.draw(region, getDrawX(), getDrawY(), region.getRegionWidth() / 2f, region.getRegionHeight() / 2f, region.getRegionWidth(), region.getRegionHeight(), flipX ? -1 : 1, flipY ? -1 : 1, getDrawRotation());
         }
     }
 }
@@ -0,0 +1,191 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) 2020 Raymond Buckley
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package com.ray3k.jbumpexample.platformer;
+
+import com.badlogic.gdx.utils.Array;
+import com.dongbat.jbump.Rect;
+
+/**
+ * Keeps the list of live entities. Entities spawned or removed while the entities act are queued and applied together
+ * by flush() at the end of the tick. Every entity stores its position in the list so it can be removed in constant
+ * time by moving the last entity into its slot. Items are added to the world in the same pass, but removed from it
+ * right away so the entities that move later in the tick can't collide with them.
+ */
+public class EntityManager {
+    private Entity[] items = new Entity[64];
+    public int size;
+    /**
+     * The live entities that have no item and therefore can't be found by querying the world.
+     */
+    public final Array<Entity> entitiesWithoutItems = new Array<>();
+    private final Array<Entity> spawns = new Array<>();
+    private final Array<Entity> removals = new Array<>();
+    
+    public Entity get(int index) {
+        return items[index];
+    }
+    
+    /**
+     * Queues the entity to be added at the next flush. Its item is added to the world at the position of the entity
+     * at that time.
+     */
+    public void add(Entity entity) {
+        spawns.add(entity);
+    }
+    
+    /**
+     * Removes the item of the entity from the world and queues the entity to be removed from the list at the next
+     * flush. Removing an entity more than once in a tick has no effect.
+     */
+    public void remove(Entity entity) {
+        if (entity.removed) return;
+        entity.removed = true;
+        removals.add(entity);
+        if (entity.index != -1 && entity.item != null) {
+            Rect rect = Core.world.getRect(entity.item);
+            Core.cellSizeTuner.recordChurn(rect.x, rect.y, rect.w, rect.h);
+            Core.world.remove(entity.item);
+        }
+    }
+    
+    /**
+     * Applies the queued spawns and removals.
+     */
+    public void flush() {
+        for (int i = 0; i < spawns.size; i++) {
+            Entity entity = spawns.get(i);
+            if (entity.removed) continue;
+            
+            if (size == items.length) {
+                Entity[] newItems = new Entity[size * 2];
+                System.arraycopy(items, 0, newItems, 0, size);
+                items = newItems;
+            }
+            entity.index = size;
+            items[size++] = entity;
+            if (entity.item != null) {
+                Core.world.add(entity.item, entity.x + entity.bboxX, entity.y + entity.bboxY, entity.bboxWidth, entity.bboxHeight);
+                Core.cellSizeTuner.recordChurn(entity.x + entity.bboxX, entity.y + entity.bboxY, entity.bboxWidth, entity.bboxHeight);
+            } else {
+                entitiesWithoutItems.add(entity);
+            }
+        }
+        spawns.clear();
+        
+        for (int i = 0; i < removals.size; i++) {
+            Entity entity = removals.get(i);
+            int index = entity.index;
+            if (index != -1) {
+                //swap the last entity into the free slot
+                Entity last = items[--size];
+                items[index] = last;
+                last.index = index;
+                items[size] = null;
+                
+                if (entity.item == null) entitiesWithoutItems.removeValue(entity, true);
+            }
+            entity.index = -1;
+            entity.removed = false;
+            entity.despawned();
+        }
+        removals.clear();
+    }
+    
+    /**
+     * Immediately replaces the live entities with the given ones in the given order. Entities that stay keep their item in
+     * the world, new entities are added to the world at their position, and the rest are removed and despawned as by
+     * flush(). Queued spawns and removals are dropped. Used to restore a Snapshot.
+     */
+    public void restore(Array<Entity> restored) {
+        for (int i = 0; i < spawns.size; i++) {
+            Entity entity = spawns.get(i);
+            entity.removed = false;
+            entity.despawned();
+        }
+        spawns.clear();
+        
+        //put back the items of the queued removals, the entities are still live
+        for (int i = 0; i < removals.size; i++) {
+            Entity entity = removals.get(i);
+            entity.removed = false;
+            if (entity.index != -1 && entity.item != null) {
+                Core.world.add(entity.item, entity.x + entity.bboxX, entity.y + entity.bboxY, entity.bboxWidth, entity.bboxHeight);
+            }
+        }
+        removals.clear();
+        
+        //mark every live entity, then unmark the ones that stay
+        for (int i = 0; i < size; i++) {
+            items[i].removed = true;
+        }
+        for (int i = 0; i < restored.size; i++) {
+            restored.get(i).removed = false;
+        }
+        for (int i = 0; i < size; i++) {
+            Entity entity = items[i];
+            items[i] = null;
+            if (!entity.removed) continue;
+            
+            if (entity.item != null) Core.world.remove(entity.item);
+            entity.index = -1;
+            entity.removed = false;
+            entity.despawned();
+        }
+        
+        if (items.length < restored.size) items = new Entity[restored.size];
+        size = restored.size;
+        entitiesWithoutItems.clear();
+        for (int i = 0; i < restored.size; i++) {
+            Entity entity = restored.get(i);
+            if (entity.item == null) entitiesWithoutItems.add(entity);
+            else if (entity.index == -1) Core.world.add(entity.item, entity.x + entity.bboxX, entity.y + entity.bboxY, entity.bboxWidth, entity.bboxHeight);
+            entity.index = i;
+            items[i] = entity;
+        }
+    }
+    
+    /**
+     * Immediately removes every entity and their items, including the ones that are still queued.
+     */
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            Entity entity = items[i];
+            if (entity.item != null && !entity.removed) Core.world.remove(entity.item);
+            entity.index = -1;
+            entity.removed = false;
+            entity.despawned();
+            items[i] = null;
+        }
+        size = 0;
+        entitiesWithoutItems.clear();
+        
+        for (int i = 0; i < spawns.size; i++) {
+            Entity entity = spawns.get(i);
+            entity.removed = false;
+            entity.despawned();
+        }
+        spawns.clear();
+        removals.clear();
+    }
+}
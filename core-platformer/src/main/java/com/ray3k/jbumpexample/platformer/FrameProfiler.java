@@ -0,0 +1,238 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) 2020 Raymond Buckley
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package com.ray3k.jbumpexample.platformer;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Input.Keys;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.StreamUtils;
+import com.badlogic.gdx.utils.StringBuilder;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+import static com.ray3k.jbumpexample.platformer.Core.*;
+
+/**
+ * Times the phases of a frame with System.nanoTime() and the act() calls per entity Category. The times of the last
+ * WINDOW frames are kept to show their p50, p95, p99, and max in a HUD toggled with HUD_KEY. CSV_KEY streams the time
+ * of every frame to CSV_FILE. While both are off, begin() and end() return after checking a single field.
+ */
+public class FrameProfiler implements Disposable {
+    public static final int HUD_KEY = Keys.F2;
+    public static final int CSV_KEY = Keys.F3;
+    public static final String CSV_FILE = "profile-platformer.csv";
+    /**
+     * The number of frames the percentiles are computed over.
+     */
+    public static final int WINDOW = 300;
+    /**
+     * The number of frames between two updates of the percentiles shown in the HUD.
+     */
+    public static final int REFRESH_FRAMES = 30;
+    public static final int INPUT = 0;
+    public static final int STREAM = 1;
+    public static final int ACTIVITY = 2;
+    public static final int ACT = 3;
+    public static final int FLUSH = 4;
+    public static final int SOUND = 5;
+    public static final int STATIC_LAYER = 6;
+    public static final int CULL = 7;
+    public static final int DRAW = 8;
+    public static final int DEBUG = 9;
+    public static final int FRAME = 10;
+    public static final String[] PHASE_NAMES = {"input", "stream", "activity", "act", "flush", "sound", "static layer",
+            "cull", "draw", "debug", "frame"};
+    /**
+     * The names of the entity categories.
+     */
+    public static final String[] TYPE_NAMES = {"other", "player", "enemy", "block"};
+    private static final int PHASES = PHASE_NAMES.length;
+    private static final int SERIES = PHASES + Category.COUNT;
+    /**
+     * True while the HUD or the CSV stream is on. Checked before any time is taken.
+     */
+    public boolean enabled;
+    private boolean hud;
+    private Writer csv;
+    private final long[] starts = new long[PHASES];
+    private final long[] frame = new long[SERIES];
+    private final long[][] samples = new long[SERIES][WINDOW];
+    private final long[][] percentiles = new long[SERIES][4];
+    private final long[] sorted = new long[WINDOW];
+    private int sampleIndex;
+    private int sampleCount;
+    private int frames;
+    private BitmapFont font;
+    private final Matrix4 screenMatrix = new Matrix4();
+    private final StringBuilder stringBuilder = new StringBuilder();
+    
+    public void toggleHud() {
+        hud = !hud;
+        enabled = hud || csv != null;
+    }
+    
+    /**
+     * Starts streaming to CSV_FILE, replacing it, or stops and closes it.
+     */
+    public void toggleCsv() {
+        if (csv == null) {
+            csv = Gdx.files.local(CSV_FILE).writer(false);
+            stringBuilder.setLength(0);
+            stringBuilder.append("frame");
+            for (int i = 0; i < SERIES; i++) {
+                stringBuilder.append(',').append(seriesName(i)).append("_us");
+            }
+            writeLine();
+        } else {
+            StreamUtils.closeQuietly(csv);
+            csv = null;
+        }
+        enabled = hud || csv != null;
+    }
+    
+    public void begin(int phase) {
+        if (enabled) starts[phase] = System.nanoTime();
+    }
+    
+    /**
+     * Adds the time since begin() to the phase. A phase may run several times in a frame, once per tick.
+     */
+    public void end(int phase) {
+        if (enabled) frame[phase] += System.nanoTime() - starts[phase];
+    }
+    
+    /**
+     * Adds the time of one act() call to the category of the entity. Only call while enabled.
+     */
+    public void addEntityTime(int category, long nanos) {
+        frame[PHASES + category] += nanos;
+    }
+    
+    /**
+     * Stores the times of the frame that just ended and streams them to the CSV. Call once at the end of every frame.
+     */
+    public void endFrame() {
+        if (!enabled) return;
+        
+        for (int i = 0; i < SERIES; i++) {
+            samples[i][sampleIndex] = frame[i];
+        }
+        sampleIndex = (sampleIndex + 1) % WINDOW;
+        if (sampleCount < WINDOW) sampleCount++;
+        
+        if (csv != null) {
+            stringBuilder.setLength(0);
+            stringBuilder.append(frames);
+            for (int i = 0; i < SERIES; i++) {
+                stringBuilder.append(',').append(frame[i] / 1000);
+            }
+            writeLine();
+        }
+        Arrays.fill(frame, 0);
+        
+        if (hud && frames % REFRESH_FRAMES == 0) computePercentiles();
+        frames++;
+    }
+    
+    private void writeLine() {
+        try {
+            stringBuilder.append('\n');
+            csv.write(stringBuilder.chars, 0, stringBuilder.length);
+        } catch (IOException e) {
+            throw new GdxRuntimeException("Error writing " + CSV_FILE, e);
+        }
+    }
+    
+    /**
+     * Sorts a copy of the window of every series to read its percentiles.
+     */
+    private void computePercentiles() {
+        for (int i = 0; i < SERIES; i++) {
+            System.arraycopy(samples[i], 0, sorted, 0, sampleCount);
+            Arrays.sort(sorted, 0, sampleCount);
+            long[] result = percentiles[i];
+            result[0] = sorted[(int) (.50f * (sampleCount - 1))];
+            result[1] = sorted[(int) (.95f * (sampleCount - 1))];
+            result[2] = sorted[(int) (.99f * (sampleCount - 1))];
+            result[3] = sorted[sampleCount - 1];
+        }
+    }
+    
+    /**
+     * Draws the percentiles in milliseconds on the right side of the screen if the HUD is on. Call between begin() and
+     * end() of the SpriteBatch.
+     */
+    public void draw() {
+        if (!hud) return;
+        if (font == null) {
+            font = new BitmapFont();
+            font.setColor(Color.BLACK);
+        }
+        
+        stringBuilder.setLength(0);
+        stringBuilder.append("ms over ").append(sampleCount).append(" frames: p50 / p95 / p99 / max");
+        for (int i = 0; i < SERIES; i++) {
+            stringBuilder.append('\n').append(seriesName(i)).append(": ");
+            long[] result = percentiles[i];
+            for (int j = 0; j < 4; j++) {
+                if (j > 0) stringBuilder.append(" / ");
+                appendMillis(result[j]);
+            }
+        }
+        if (csv != null) stringBuilder.append("\nstreaming to ").append(CSV_FILE);
+        
+        screenMatrix.setToOrtho2D(0, 0, Gdx.graphics.getWidth(), Gdx.graphics.getHeight());
+        spriteBatch.setProjectionMatrix(screenMatrix);
+        font.draw(spriteBatch, stringBuilder, Gdx.graphics.getWidth() - 330, Gdx.graphics.getHeight() - 10);
+        spriteBatch.setProjectionMatrix(camera.combined);
+    }
+    
+    /**
+     * Appends nanoseconds as milliseconds with two decimals without allocating.
+     */
+    private void appendMillis(long nanos) {
+        long hundredths = nanos / 10000;
+        stringBuilder.append(hundredths / 100).append('.');
+        long fraction = hundredths % 100;
+        if (fraction < 10) stringBuilder.append('0');
+        stringBuilder.append(fraction);
+    }
+    
+    private static String seriesName(int series) {
+        return series < PHASES ? PHASE_NAMES[series] : TYPE_NAMES[series - PHASES];
+    }
+    
+    @Override
+    public void dispose() {
+        StreamUtils.closeQuietly(csv);
+        csv = null;
+        if (font != null) font.dispose();
+    }
+}
@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) 2020 Raymond Buckley
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package com.ray3k.jbumpexample.platformer;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.StreamUtils;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+
+/**
+ * Records the TickInput of every tick to a file, or plays a recording back in place of the player. The file starts
+ * with the seed of MathUtils.random so a replay draws the same random numbers as the recorded run. With the fixed tick of
+ * Core a replay of the same build on the same map runs the same simulation tick for tick.
+ */
+public class InputLog implements Disposable {
+    public static final int MAGIC = 0x4A42494C;
+    public static final int VERSION = 1;
+    public final long seed;
+    /**
+     * The number of ticks recorded or played back so far.
+     */
+    public int ticks;
+    private DataOutputStream output;
+    private DataInputStream input;
+    
+    private InputLog(long seed) {
+        this.seed = seed;
+    }
+    
+    /**
+     * Starts a recording into the file, replacing it.
+     */
+    public static InputLog record(FileHandle file, long seed) {
+        InputLog log = new InputLog(seed);
+        log.output = new DataOutputStream(new BufferedOutputStream(file.write(false)));
+        try {
+            log.output.writeInt(MAGIC);
+            log.output.writeInt(VERSION);
+            log.output.writeLong(seed);
+        } catch (IOException e) {
+            log.dispose();
+            throw new GdxRuntimeException("Error writing input log: " + file, e);
+        }
+        return log;
+    }
+    
+    /**
+     * Opens a recording for playback.
+     */
+    public static InputLog replay(FileHandle file) {
+        DataInputStream input = new DataInputStream(file.read(8192));
+        try {
+            if (input.readInt() != MAGIC) throw new GdxRuntimeException("Not an input log: " + file);
+            int version = input.readInt();
+            if (version != VERSION) throw new GdxRuntimeException("Unsupported input log version " + version + ": " + file);
+            InputLog log = new InputLog(input.readLong());
+            log.input = input;
+            return log;
+        } catch (IOException e) {
+            StreamUtils.closeQuietly(input);
+            throw new GdxRuntimeException("Error reading input log: " + file, e);
+        } catch (GdxRuntimeException e) {
+            StreamUtils.closeQuietly(input);
+            throw e;
+        }
+    }
+    
+    public boolean isReplay() {
+        return input != null;
+    }
+    
+    /**
+     * Fills tickInput for the next tick. A recording polls the player and appends the result. A replay reads the next
+     * recorded tick and ignores delta.
+     * @return false once a replay has no ticks left
+     */
+    public boolean next(TickInput tickInput, float delta) {
+        try {
+            if (input != null) {
+                tickInput.read(input);
+            } else {
+                tickInput.poll(delta);
+                tickInput.write(output);
+            }
+        } catch (EOFException e) {
+            return false;
+        } catch (IOException e) {
+            throw new GdxRuntimeException("Error accessing input log.", e);
+        }
+        ticks++;
+        return true;
+    }
+    
+    /**
+     * Closes the file. A recording is only complete once it is disposed.
+     */
+    @Override
+    public void dispose() {
+        StreamUtils.closeQuietly(output);
+        StreamUtils.closeQuietly(input);
+        output = null;
+        input = null;
+    }
+}
@@ -0,0 +1,83 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) 2020 Raymond Buckley
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package com.ray3k.jbumpexample.platformer;
+
+import com.badlogic.gdx.files.FileHandle;
+
+/**
+ * Converts a map in the text format of Core.MAP into a chunked level that the LevelStreamer can page in piece by piece.
+ * A chunked level is a directory holding level.txt, a single line with the number of columns, the number of rows, the
+ * width of a chunk in columns, and the column and row of the player, followed by one file per chunk named chunk-N.txt.
+ * Every chunk holds all rows of the map for its columns in the characters of Core.MAP. The player is only stored in the
+ * header so it can be spawned before any chunk is loaded.
+ */
+public class LevelChunker {
+    public static final String HEADER_FILE = "level.txt";
+    public static final int DEFAULT_CHUNK_COLUMNS = 16;
+    
+    /**
+     * Converts a text map file. Arguments: the map file, the output directory, and optionally the chunk width.
+     */
+    public static void main(String[] args) {
+        int chunkColumns = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_CHUNK_COLUMNS;
+        write(new FileHandle(args[0]).readString(), new FileHandle(args[1]), chunkColumns);
+    }
+    
+    public static String chunkFile(int chunk) {
+        return "chunk-" + chunk + ".txt";
+    }
+    
+    public static void write(String map, FileHandle directory, int chunkColumns) {
+        String[] lines = map.replace("\r", "").split("\n");
+        int rows = lines.length;
+        int columns = 0;
+        int playerColumn = 0;
+        int playerRow = 0;
+        for (int j = 0; j < rows; j++) {
+            columns = Math.max(columns, lines[j].length());
+            int index = lines[j].indexOf('p');
+            if (index != -1) {
+                playerColumn = index;
+                playerRow = j;
+            }
+        }
+        
+        directory.mkdirs();
+        directory.child(HEADER_FILE).writeString(columns + " " + rows + " " + chunkColumns + " " + playerColumn + " " + playerRow + "\n", false);
+        
+        StringBuilder builder = new StringBuilder();
+        int chunks = (columns + chunkColumns - 1) / chunkColumns;
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            builder.setLength(0);
+            for (int j = 0; j < rows; j++) {
+                for (int i = chunk * chunkColumns; i < Math.min(columns, (chunk + 1) * chunkColumns); i++) {
+                    char c = i < lines[j].length() ? lines[j].charAt(i) : '-';
+                    builder.append(c == 'p' ? '-' : c);
+                }
+                builder.append('\n');
+            }
+            directory.child(chunkFile(chunk)).writeString(builder.toString(), false);
+        }
+    }
+}
@@ -0,0 +1,317 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) 2020 Raymond Buckley
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package com.ray3k.jbumpexample.platformer;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.async.AsyncExecutor;
+import com.badlogic.gdx.utils.async.AsyncResult;
+import com.badlogic.gdx.utils.async.AsyncTask;
+
+import java.util.Arrays;
+
+import static com.ray3k.jbumpexample.platformer.Core.*;
+
+/**
+ * Pages the chunks of a level written by LevelChunker in and out around the player. Only the chunks near the player
+ * are read from disk and have their blocks and enemies in the game, so the memory and the load time of a level depend
+ * on the view instead of the width of the level. Enemies defeated in a chunk are remembered when it is paged out. Enemies
+ * still alive are respawned at their start position when the chunk is paged in again.
+ * <p>
+ * The files of the chunks one step beyond LOAD_RADIUS are read ahead on a background thread, so a tick only parses bytes
+ * that are already in memory. Chunks, blocks, and enemies are recycled, so paging allocates nothing once every pool has
+ * filled up.
+ */
+public class LevelStreamer implements Disposable {
+    /**
+     * Chunks within this many chunks of the chunk of the player are loaded.
+     */
+    public static int LOAD_RADIUS = 2;
+    /**
+     * Chunks further than this many chunks from the chunk of the player are unloaded. Larger than LOAD_RADIUS so
+     * walking back and forth over a border does not page the same chunk repeatedly. At most 2 * UNLOAD_RADIUS + 1
+     * chunks are resident.
+     */
+    public static int UNLOAD_RADIUS = 3;
+    public final int columns;
+    public final int rows;
+    public final int chunkColumns;
+    public final int chunkCount;
+    public final int playerColumn;
+    public final int playerRow;
+    private final FileHandle directory;
+    private final Array<Chunk> residentChunks = new Array<>();
+    /**
+     * Chunks whose file has been or is being read ahead but that are not resident yet.
+     */
+    private final Array<Chunk> prefetchedChunks = new Array<>();
+    private final Array<Chunk> freeChunks = new Array<>();
+    private final AsyncExecutor executor = new AsyncExecutor(1, "LevelStreamer");
+    /**
+     * The defeated enemy spawns of every chunk, kept after the chunk is unloaded. Null for chunks without any.
+     */
+    private final boolean[][] defeated;
+    private final IntArray rectangles = new IntArray();
+    private final boolean[][] merged;
+    /**
+     * The StaticLayer slots in use by resident chunks.
+     */
+    private final boolean[] usedSlots;
+    
+    public LevelStreamer(FileHandle directory) {
+        this.directory = directory;
+        String[] header = directory.child(LevelChunker.HEADER_FILE).readString().trim().split(" ");
+        columns = Integer.parseInt(header[0]);
+        rows = Integer.parseInt(header[1]);
+        chunkColumns = Integer.parseInt(header[2]);
+        playerColumn = Integer.parseInt(header[3]);
+        playerRow = Integer.parseInt(header[4]);
+        chunkCount = (columns + chunkColumns - 1) / chunkColumns;
+        defeated = new boolean[chunkCount][];
+        merged = new boolean[rows][chunkColumns];
+        usedSlots = new boolean[2 * UNLOAD_RADIUS + 1];
+        if (staticLayer != null) staticLayer.reserveSlots(usedSlots.length, rows, chunkColumns);
+    }
+    
+    public int getResidentCount() {
+        return residentChunks.size;
+    }
+    
+    /**
+     * Loads the chunks near the given x position and unloads the ones far from it. Blocks and enemies are queued with
+     * Core.entities and enter the world at the next flush. Then starts reading the files of the chunks that come into
+     * reach next.
+     */
+    public void update(float x) {
+        int center = MathUtils.clamp(MathUtils.floor(x / TILE_DIMENSION / chunkColumns), 0, chunkCount - 1);
+        
+        for (int i = residentChunks.size - 1; i >= 0; i--) {
+            Chunk chunk = residentChunks.get(i);
+            if (Math.abs(chunk.index - center) > UNLOAD_RADIUS) {
+                unload(chunk);
+                residentChunks.removeIndex(i);
+                freeChunks.add(chunk);
+            }
+        }
+        
+        //a read that is still running keeps its chunk until it is done
+        int prefetchRadius = LOAD_RADIUS + 1;
+        for (int i = prefetchedChunks.size - 1; i >= 0; i--) {
+            Chunk chunk = prefetchedChunks.get(i);
+            if (Math.abs(chunk.index - center) > prefetchRadius && chunk.pending.isDone()) {
+                prefetchedChunks.removeIndex(i);
+                freeChunks.add(chunk);
+            }
+        }
+        
+        for (int index = Math.max(0, center - LOAD_RADIUS); index <= Math.min(chunkCount - 1, center + LOAD_RADIUS); index++) {
+            if (findChunk(residentChunks, index) == -1) load(index);
+        }
+        
+        for (int index = Math.max(0, center - prefetchRadius); index <= Math.min(chunkCount - 1, center + prefetchRadius); index++) {
+            if (findChunk(residentChunks, index) == -1 && findChunk(prefetchedChunks, index) == -1) {
+                prefetchedChunks.add(prefetch(index));
+            }
+        }
+    }
+    
+    private static int findChunk(Array<Chunk> chunks, int index) {
+        for (int i = 0; i < chunks.size; i++) {
+            if (chunks.get(i).index == index) return i;
+        }
+        return -1;
+    }
+    
+    /**
+     * Starts reading the file of a chunk on the background thread.
+     */
+    private Chunk prefetch(int index) {
+        Chunk chunk = freeChunks.size > 0 ? freeChunks.pop() : new Chunk(directory);
+        chunk.index = index;
+        chunk.pending = executor.submit(chunk);
+        return chunk;
+    }
+    
+    /**
+     * Parses the file of a chunk, read ahead by prefetch() or read now if the player outran the prefetch, and spawns
+     * its blocks and enemies.
+     */
+    private void load(int index) {
+        int prefetched = findChunk(prefetchedChunks, index);
+        Chunk chunk = prefetched != -1 ? prefetchedChunks.removeIndex(prefetched) : prefetch(index);
+        chunk.pending.get();
+        chunk.pending = null;
+        
+        int firstColumn = index * chunkColumns;
+        chunk.width = Math.min(chunkColumns, columns - firstColumn);
+        if (chunk.solid == null) chunk.solid = new boolean[rows][chunkColumns];
+        for (int j = 0; j < rows; j++) {
+            Arrays.fill(chunk.solid[j], false);
+        }
+        chunk.blocks.clear();
+        chunk.enemies.clear();
+        chunk.generations.clear();
+        
+        //the file has one line of tiles per row
+        for (int k = 0, i = 0, j = 0; k < chunk.length && j < rows; k++) {
+            byte c = chunk.bytes[k];
+            if (c == '\n') {
+                i = 0;
+                j++;
+                continue;
+            }
+            if (c == '\r') continue;
+            
+            if (i < chunk.width) {
+                if (c == '+') chunk.solid[j][i] = true;
+                else if (c == 'e') spawnEnemy(chunk, firstColumn + i, j);
+            }
+            i++;
+        }
+        
+        //cover the blocks of the chunk with as few colliders as possible
+        rectangles.clear();
+        BlockMerger.merge(chunk.solid, merged, rectangles);
+        for (int k = 0; k < rectangles.size; k += 4) {
+            int column = rectangles.get(k);
+            int row = rectangles.get(k + 1);
+            int width = rectangles.get(k + 2);
+            int height = rectangles.get(k + 3);
+            
+            Block collider = blockPool.obtain();
+            collider.bboxWidth = width * TILE_DIMENSION;
+            collider.bboxHeight = height * TILE_DIMENSION;
+            collider.x = (firstColumn + column) * TILE_DIMENSION;
+            collider.y = (rows - row - height + 1) * TILE_DIMENSION;
+            collider.savePosition();
+            entities.add(collider);
+            chunk.blocks.add(collider);
+        }
+        
+        //bake the blocks of the chunk into a free slot of the StaticLayer
+        if (staticLayer != null) {
+            chunk.slot = 0;
+            while (usedSlots[chunk.slot]) chunk.slot++;
+            usedSlots[chunk.slot] = true;
+            staticLayer.buildSlot(chunk.slot, chunk.solid, chunk.width, firstColumn);
+        }
+        residentChunks.add(chunk);
+    }
+    
+    private void spawnEnemy(Chunk chunk, int column, int row) {
+        //keep the spawn order stable so defeated spawns can be matched up later
+        int spawn = chunk.enemies.size;
+        boolean[] chunkDefeated = defeated[chunk.index];
+        if (chunkDefeated != null && spawn < chunkDefeated.length && chunkDefeated[spawn]) {
+            chunk.enemies.add(null);
+            chunk.generations.add(0);
+            return;
+        }
+        
+        Enemy enemy = enemyPool.obtain();
+        enemy.x = column * TILE_DIMENSION;
+        enemy.y = (rows - row) * TILE_DIMENSION;
+        enemy.savePosition();
+        entities.add(enemy);
+        chunk.enemies.add(enemy);
+        chunk.generations.add(enemy.generation);
+    }
+    
+    private void unload(Chunk chunk) {
+        for (int i = 0; i < chunk.blocks.size; i++) {
+            entities.remove(chunk.blocks.get(i));
+        }
+        
+        //an enemy that went back to the pool since it was spawned was defeated
+        for (int i = 0; i < chunk.enemies.size; i++) {
+            Enemy enemy = chunk.enemies.get(i);
+            if (enemy == null || enemy.generation != chunk.generations.get(i)) {
+                if (defeated[chunk.index] == null) defeated[chunk.index] = new boolean[chunk.enemies.size];
+                defeated[chunk.index][i] = true;
+            } else {
+                entities.remove(enemy);
+            }
+        }
+        chunk.blocks.clear();
+        chunk.enemies.clear();
+        
+        if (staticLayer != null) {
+            staticLayer.clearSlot(chunk.slot);
+            usedSlots[chunk.slot] = false;
+        }
+    }
+    
+    /**
+     * Waits for the reads in progress and stops the background thread.
+     */
+    @Override
+    public void dispose() {
+        executor.dispose();
+    }
+    
+    /**
+     * A chunk of the level. Reading its file is the only part of loading it that runs on the background thread.
+     */
+    private static class Chunk implements AsyncTask<Void> {
+        private final FileHandle directory;
+        private int index;
+        /**
+         * The read of the file, null once the chunk has been parsed.
+         */
+        private AsyncResult<Void> pending;
+        /**
+         * The contents of the file, reused when the chunk is recycled.
+         */
+        private byte[] bytes = new byte[0];
+        private int length;
+        private int width;
+        private int slot;
+        private boolean[][] solid;
+        private final Array<Block> blocks = new Array<>();
+        /**
+         * The enemies in spawn order. Null for spawns that were already defeated when the chunk was loaded.
+         */
+        private final Array<Enemy> enemies = new Array<>();
+        /**
+         * The generation of every enemy when it was spawned.
+         */
+        private final IntArray generations = new IntArray();
+        
+        private Chunk(FileHandle directory) {
+            this.directory = directory;
+        }
+        
+        @Override
+        public Void call() {
+            FileHandle file = directory.child(LevelChunker.chunkFile(index));
+            length = (int) file.length();
+            if (bytes.length < length) bytes = new byte[length];
+            length = file.readBytes(bytes, 0, length);
+            return null;
+        }
+    }
+}
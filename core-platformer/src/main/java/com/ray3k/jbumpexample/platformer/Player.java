@@ -23,26 +23,27 @@
  ******************************************************************************/
 package com.ray3k.jbumpexample.platformer;
 
-import com.badlogic.gdx.Gdx;
-import com.badlogic.gdx.Input.Keys;
+import com.badlogic.gdx.assets.AssetManager;
 import com.badlogic.gdx.audio.Sound;
 import com.badlogic.gdx.graphics.g2d.Animation;
 import com.badlogic.gdx.graphics.g2d.Animation.PlayMode;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
 import com.badlogic.gdx.graphics.g2d.TextureAtlas.AtlasRegion;
 import com.dongbat.jbump.*;
 import com.dongbat.jbump.Response.Result;
 
+import java.nio.ByteBuffer;
+
 import static com.ray3k.jbumpexample.platformer.Core.*;
 
 public class Player extends Entity {
-    public static final Animation<AtlasRegion> walk = new Animation<>(1 / 30f, textureAtlas.findRegions("m-player-walk"), PlayMode.LOOP);
-    public static final Animation<AtlasRegion> stand = new Animation<>(1 / 30f, textureAtlas.findRegions("m-player-stand"), PlayMode.LOOP);
-    public static final Animation<AtlasRegion> jump = new Animation<>(1 / 30f, textureAtlas.findRegions("m-player-jump"), PlayMode.LOOP);
-    public static final Animation<AtlasRegion> wall = new Animation<>(1 / 30f, textureAtlas.findRegions("m-player-wall"), PlayMode.LOOP);
-    public static final Sound jumpSound = Gdx.audio.newSound(Gdx.files.internal("jump.mp3"));
-    public static final Sound hurtSound = Gdx.audio.newSound(Gdx.files.internal("hurt.mp3"));
-    public static final Sound killSound = Gdx.audio.newSound(Gdx.files.internal("kill.mp3"));
-    public static final PlayerCollisionFilter PLAYER_COLLISION_FILTER = new PlayerCollisionFilter();
+    public static Animation<AtlasRegion> walk;
+    public static Animation<AtlasRegion> stand;
+    public static Animation<AtlasRegion> jump;
+    public static Animation<AtlasRegion> wall;
+    public static SoundEffect jumpSound;
+    public static SoundEffect hurtSound;
+    public static SoundEffect killSound;
     public static final Collisions tempCollisions = new Collisions();
     public static final float FRICTION = 250f;
     public static final float RUN_ACCELERATION = 1800f;
@@ -53,6 +54,21 @@ public class Player extends Entity {
     public static final float JUMP_MAX_TIME = .25f;
     private float jumpTime;
     private boolean jumping;
+    private boolean inAir;
+    private boolean hitWall;
+    
+    /**
+     * Builds the animations and sounds of the player. Called by Assets.resolve().
+     */
+    public static void resolve(TextureAtlas atlas, AssetManager assetManager) {
+        walk = new Animation<>(1 / 30f, atlas.findRegions("m-player-walk"), PlayMode.LOOP);
+        stand = new Animation<>(1 / 30f, atlas.findRegions("m-player-stand"), PlayMode.LOOP);
+        jump = new Animation<>(1 / 30f, atlas.findRegions("m-player-jump"), PlayMode.LOOP);
+        wall = new Animation<>(1 / 30f, atlas.findRegions("m-player-wall"), PlayMode.LOOP);
+        jumpSound = new SoundEffect(assetManager.get(Assets.JUMP_SOUND, Sound.class), 2, .05f, .21f);
+        hurtSound = new SoundEffect(assetManager.get(Assets.HURT_SOUND, Sound.class), 2, .05f, .27f);
+        killSound = new SoundEffect(assetManager.get(Assets.KILL_SOUND, Sound.class), 4, .05f, .38f);
+    }
     
     public Player() {
         animation = stand;
@@ -62,6 +78,7 @@ public class Player extends Entity {
         bboxWidth = 70;
         bboxHeight = 130;
         item = new Item<>(this);
+        setCategory(Category.PLAYER);
     }
     
     @Override
@@ -71,10 +88,9 @@ public class Player extends Entity {
         
         //handle movement and input
         deltaX = Utils.approach(deltaX, 0, FRICTION * delta);
-        boolean left = Gdx.input.isKeyPressed(Keys.LEFT);
-        boolean right = Gdx.input.isKeyPressed(Keys.RIGHT);
-        boolean up = Gdx.input.isKeyPressed(Keys.UP);
-        boolean upJustPressed = Gdx.input.isKeyJustPressed(Keys.UP);
+        boolean left = input.isPressed(TickInput.LEFT);
+        boolean right = input.isPressed(TickInput.RIGHT);
+        boolean up = input.isPressed(TickInput.UP);
         if (right) {
             animation = walk;
             flipX = false;
@@ -89,10 +105,10 @@ public class Player extends Entity {
         }
         
         if (!up) jumping = false;
-        if (upJustPressed) {
+        if (input.isPressed(TickInput.JUMP)) {
             //check if the player is on ground.
             world.project(item, x + bboxX, y + bboxY, bboxWidth, bboxHeight, x + bboxX, y + bboxY - .1f,
-                    PLAYER_COLLISION_FILTER, tempCollisions);
+                    Category.FILTER, tempCollisions);
             if (tempCollisions.size() > 0) {
                 //start jump
                 jumping = true;
@@ -113,46 +129,11 @@ public class Player extends Entity {
         y += delta * deltaY;
         
         //handle collisions
-        boolean inAir = true;
-        boolean hitWall = false;
-        Result result = world.move(item, x + bboxX, y + bboxY, PLAYER_COLLISION_FILTER);
-        for (int i = 0; i < result.projectedCollisions.size(); i++) {
-            Collision collision = result.projectedCollisions.get(i);
-            if (collision.other.userData instanceof Block) {
-                if (collision.normal.x != 0) {
-                    //hit a wall
-                    deltaX = 0;
-                    hitWall = true;
-                }
-                if (collision.normal.y != 0) {
-                    //hit ceiling or floor
-                    deltaY = 0;
-                    jumpTime = JUMP_MAX_TIME;
-                    
-                    if (collision.normal.y == 1) {
-                        //hit floor
-                        jumpTime = 0f;
-                        jumping = false;
-                        inAir = false;
-                    }
-                }
-            } else if (collision.other.userData instanceof Enemy) {
-                Enemy enemy = (Enemy) collision.other.userData;
-                if (!enemy.isDying()) {
-                    if (collision.normal.y == 1 && !collision.overlaps) {
-                        //landed on enemy: bounce
-                        deltaY = BOUNCE_SPEED;
-                        killSound.play();
-                        enemy.die();
-                    } else {
-                        //ran into enemy: kill the player
-                        entities.removeValue(this, true);
-                        world.remove(item);
-                        hurtSound.play();
-                    }
-                }
-            }
-        }
+        inAir = true;
+        hitWall = false;
+        cellSizeTuner.recordMove(this, x + bboxX, y + bboxY);
+        Result result = world.move(item, x + bboxX, y + bboxY, Category.FILTER);
+        handleContacts(result);
         
         //update position based on collisions
         Rect rect = world.getRect(item);
@@ -166,20 +147,71 @@ public class Player extends Entity {
         else if (hitWall) {
             animation = wall;
         }
-        
-        //update camera
-        camera.position.set(x, y, 0);
     }
     
-    /**
-     * Slide on blocks, detect collisions with enemies
-     */
-    public static class PlayerCollisionFilter implements CollisionFilter {
-        @Override
-        public Response filter(Item item, Item other) {
-            if (other.userData instanceof Block) return Response.slide;
-            else if (other.userData instanceof Enemy) return Response.cross;
-            return null;
+    @Override
+    public void writeState(ByteBuffer buffer) {
+        super.writeState(buffer);
+        buffer.putFloat(jumpTime);
+        buffer.put((byte) (jumping ? 1 : 0));
+        buffer.put((byte) (animation == walk ? 1 : animation == jump ? 2 : animation == wall ? 3 : 0));
+    }
+    
+    @Override
+    public void readState(ByteBuffer buffer) {
+        super.readState(buffer);
+        jumpTime = buffer.getFloat();
+        jumping = buffer.get() == 1;
+        switch (buffer.get()) {
+            case 1:
+                animation = walk;
+                break;
+            case 2:
+                animation = jump;
+                break;
+            case 3:
+                animation = wall;
+                break;
+            default:
+                animation = stand;
+        }
+    }
+    
+    @Override
+    public void contactBlock(Block block, Collision collision) {
+        if (collision.normal.x != 0) {
+            //hit a wall
+            deltaX = 0;
+            hitWall = true;
+        }
+        if (collision.normal.y != 0) {
+            //hit ceiling or floor
+            deltaY = 0;
+            jumpTime = JUMP_MAX_TIME;
+            
+            if (collision.normal.y == 1) {
+                //hit floor
+                jumpTime = 0f;
+                jumping = false;
+                inAir = false;
+            }
+        }
+    }
+    
+    @Override
+    public void contactEnemy(Enemy enemy, Collision collision) {
+        //a player touching several enemies only dies once
+        if (!enemy.isDying() && !removed) {
+            if (collision.normal.y == 1 && !collision.overlaps) {
+                //landed on enemy: bounce
+                deltaY = BOUNCE_SPEED;
+                killSound.play();
+                enemy.die();
+            } else {
+                //ran into enemy: kill the player
+                entities.remove(this);
+                hurtSound.play();
+            }
         }
     }
 }
@@ -0,0 +1,185 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) 2020 Raymond Buckley
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package com.ray3k.jbumpexample.platformer;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.dongbat.jbump.Rect;
+
+import java.nio.ByteBuffer;
+
+import static com.ray3k.jbumpexample.platformer.Core.*;
+
+/**
+ * Captures the state of the simulation into a compact buffer and restores it in place. Every live entity is written in
+ * list order as its category followed by its state and the rect of its item. Restoring reuses the live entities of
+ * each category in list order, creates only the ones that are missing, and updates the items already in the world
+ * instead of removing and adding them again. Snapshots can be written to and read from files for checkpoints. A
+ * snapshot belongs to the level it was captured in.
+ */
+public class Snapshot {
+    public static final int MAGIC = 0x4A42534E;
+    public static final int VERSION = 1;
+    /**
+     * More than the number of bytes written for any single entity. The buffer grows before an entity is written if it
+     * has less room than this left.
+     */
+    private static final int MAX_ENTITY_SIZE = 128;
+    private ByteBuffer buffer = ByteBuffer.allocate(4096);
+    private final Array<Entity> restored = new Array<>();
+    private final FloatArray rects = new FloatArray();
+    private final Array<Array<Entity>> buckets = new Array<>();
+    private final int[] cursors = new int[Category.COUNT];
+    
+    public Snapshot() {
+        for (int i = 0; i < Category.COUNT; i++) {
+            buckets.add(new Array<Entity>());
+        }
+        buffer.limit(0);
+    }
+    
+    public boolean isEmpty() {
+        return buffer.limit() == 0;
+    }
+    
+    /**
+     * The number of bytes of the captured state.
+     */
+    public int getSize() {
+        return buffer.limit();
+    }
+    
+    /**
+     * Replaces the snapshot with the current state. Call between ticks, when no spawns or removals are queued.
+     */
+    public void capture() {
+        buffer.clear();
+        buffer.putInt(MAGIC).putInt(VERSION);
+        buffer.putInt(entities.size);
+        for (int i = 0; i < entities.size; i++) {
+            Entity entity = entities.get(i);
+            if (buffer.remaining() < MAX_ENTITY_SIZE) grow();
+            
+            buffer.put((byte) entity.category);
+            entity.writeState(buffer);
+            if (entity.item != null) {
+                Rect rect = world.getRect(entity.item);
+                buffer.putFloat(rect.x).putFloat(rect.y).putFloat(rect.w).putFloat(rect.h);
+            }
+        }
+        buffer.flip();
+    }
+    
+    private void grow() {
+        ByteBuffer newBuffer = ByteBuffer.allocate(buffer.capacity() * 2);
+        buffer.flip();
+        newBuffer.put(buffer);
+        buffer = newBuffer;
+    }
+    
+    /**
+     * Brings the simulation back to the captured state. Call between ticks.
+     */
+    public void restore() {
+        if (isEmpty()) return;
+        buffer.rewind();
+        if (buffer.getInt() != MAGIC) throw new GdxRuntimeException("Not a snapshot.");
+        if (buffer.getInt() != VERSION) throw new GdxRuntimeException("Unsupported snapshot version.");
+        
+        //group the live entities by category so they are reused in list order
+        for (int i = 0; i < Category.COUNT; i++) {
+            buckets.get(i).clear();
+            cursors[i] = 0;
+        }
+        for (int i = 0; i < entities.size; i++) {
+            Entity entity = entities.get(i);
+            buckets.get(entity.category).add(entity);
+        }
+        
+        restored.clear();
+        rects.clear();
+        Player restoredPlayer = player;
+        int count = buffer.getInt();
+        for (int i = 0; i < count; i++) {
+            int type = buffer.get();
+            Entity entity;
+            if (cursors[type] < buckets.get(type).size) entity = buckets.get(type).get(cursors[type]++);
+            else entity = obtain(type);
+            if (type == Category.PLAYER) restoredPlayer = (Player) entity;
+            
+            entity.readState(buffer);
+            restored.add(entity);
+            
+            //the rect is applied once the item is in the world
+            if (entity.item != null) rects.add(buffer.getFloat(), buffer.getFloat(), buffer.getFloat(), buffer.getFloat());
+        }
+        entities.restore(restored);
+        player = restoredPlayer;
+        
+        //put the items back where they were
+        for (int i = 0, k = 0; i < restored.size; i++) {
+            Entity entity = restored.get(i);
+            if (entity.item == null) continue;
+            
+            world.update(entity.item, rects.get(k), rects.get(k + 1), rects.get(k + 2), rects.get(k + 3));
+            k += 4;
+        }
+    }
+    
+    /**
+     * Provides an entity for a record that has no live entity of its type to reuse.
+     */
+    private Entity obtain(int type) {
+        switch (type) {
+            case Category.PLAYER:
+                return new Player();
+            case Category.ENEMY:
+                return enemyPool.obtain();
+            case Category.BLOCK:
+                return blockPool.obtain();
+            default:
+                throw new GdxRuntimeException("Unknown entity type in snapshot: " + type);
+        }
+    }
+    
+    /**
+     * Writes the captured state to a file, for example as a checkpoint.
+     */
+    public void write(FileHandle file) {
+        file.writeBytes(buffer.array(), 0, buffer.limit(), false);
+    }
+    
+    /**
+     * Replaces the snapshot with one written to a file by write(). Call restore() to apply it.
+     */
+    public void read(FileHandle file) {
+        byte[] bytes = file.readBytes();
+        if (buffer.capacity() < bytes.length) buffer = ByteBuffer.allocate(bytes.length);
+        buffer.clear();
+        buffer.put(bytes);
+        buffer.flip();
+    }
+}
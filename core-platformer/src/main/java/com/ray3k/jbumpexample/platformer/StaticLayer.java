@@ -0,0 +1,237 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) 2020 Raymond Buckley
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package com.ray3k.jbumpexample.platformer;
+
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.graphics.g2d.SpriteCache;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas.AtlasRegion;
+import com.badlogic.gdx.utils.Disposable;
+
+import static com.ray3k.jbumpexample.platformer.Core.TILE_DIMENSION;
+
+/**
+ * Draws the blocks of the map from geometry baked once at load time. The map is divided into square chunks, each
+ * cached in a SpriteCache, and only the chunks that overlap the camera are drawn. Blocks never move, so no vertices are
+ * submitted for them after the map is loaded. A streamed level instead bakes every chunk the LevelStreamer pages in
+ * into a slot of its own, so paging a chunk in or out leaves the other chunks as they are.
+ */
+public class StaticLayer implements Disposable {
+    /**
+     * The width and height of a chunk in tiles.
+     */
+    public static final int CHUNK_TILES = 16;
+    private SpriteCache spriteCache;
+    private int capacity;
+    private int rows;
+    private int columnOffset;
+    private int chunkColumns;
+    private int chunkRows;
+    /**
+     * The cache id of every chunk or -1 if the chunk has no blocks.
+     */
+    private int[] cacheIds = new int[0];
+    private int slotCount;
+    /**
+     * The cache id of every slot reserved by reserveSlots().
+     */
+    private int[] slotCacheIds = new int[0];
+    /**
+     * The first column of the map baked into every slot or -1 if the slot is empty.
+     */
+    private int[] slotColumns = new int[0];
+    private int[] slotWidths = new int[0];
+    
+    /**
+     * Bakes the solid tiles of a map. Row 0 is the top of the map, as in Core.MAP.
+     */
+    public void build(boolean[][] solid) {
+        build(solid, 0);
+    }
+    
+    /**
+     * Bakes the solid tiles of a window of a map whose first column is the given column of the map. Used to bake only the
+     * chunks that are loaded by the LevelStreamer.
+     */
+    public void build(boolean[][] solid, int firstColumn) {
+        slotCount = 0;
+        int rows = solid.length;
+        int columns = 0;
+        int count = 0;
+        for (int j = 0; j < rows; j++) {
+            columns = Math.max(columns, solid[j].length);
+            for (int i = 0; i < solid[j].length; i++) {
+                if (solid[j][i]) count++;
+            }
+        }
+        
+        //the memory of a cache is allocated up front, so grow it only when a bigger map is loaded
+        if (spriteCache == null || count > capacity) {
+            if (spriteCache != null) spriteCache.dispose();
+            capacity = Math.max(count, 1);
+            spriteCache = new SpriteCache(capacity, false);
+        }
+        spriteCache.clear();
+        
+        this.rows = rows;
+        columnOffset = firstColumn;
+        chunkColumns = (columns + CHUNK_TILES - 1) / CHUNK_TILES;
+        chunkRows = (rows + CHUNK_TILES - 1) / CHUNK_TILES;
+        if (cacheIds.length < chunkColumns * chunkRows) cacheIds = new int[chunkColumns * chunkRows];
+        
+        AtlasRegion region = Block.block.getKeyFrame(0);
+        for (int chunkRow = 0; chunkRow < chunkRows; chunkRow++) {
+            for (int chunkColumn = 0; chunkColumn < chunkColumns; chunkColumn++) {
+                int chunk = chunkRow * chunkColumns + chunkColumn;
+                cacheIds[chunk] = -1;
+                
+                boolean empty = true;
+                for (int j = chunkRow * CHUNK_TILES; j < Math.min(rows, (chunkRow + 1) * CHUNK_TILES); j++) {
+                    for (int i = chunkColumn * CHUNK_TILES; i < Math.min(solid[j].length, (chunkColumn + 1) * CHUNK_TILES); i++) {
+                        if (!solid[j][i]) continue;
+                        
+                        if (empty) {
+                            spriteCache.beginCache();
+                            empty = false;
+                        }
+                        spriteCache.add(region, (firstColumn + i) * TILE_DIMENSION, (rows - j) * TILE_DIMENSION);
+                    }
+                }
+                if (!empty) cacheIds[chunk] = spriteCache.endCache();
+            }
+        }
+    }
+    
+    /**
+     * Replaces the baked map with the given number of empty slots, each large enough for a chunk of a streamed level of
+     * the given size, see buildSlot().
+     */
+    public void reserveSlots(int count, int rows, int columns) {
+        //the memory of a cache is allocated up front, so grow it only when bigger chunks are reserved
+        int slotCapacity = rows * columns;
+        if (spriteCache == null || count * slotCapacity > capacity) {
+            if (spriteCache != null) spriteCache.dispose();
+            capacity = Math.max(count * slotCapacity, 1);
+            spriteCache = new SpriteCache(capacity, false);
+        }
+        spriteCache.clear();
+        
+        this.rows = rows;
+        chunkColumns = 0;
+        chunkRows = 0;
+        slotCount = count;
+        if (slotCacheIds.length < count) {
+            slotCacheIds = new int[count];
+            slotColumns = new int[count];
+            slotWidths = new int[count];
+        }
+        
+        //a cache can only be redefined with as many sprites as it was created with, so fill every slot up front
+        AtlasRegion region = Block.block.getKeyFrame(0);
+        for (int slot = 0; slot < count; slot++) {
+            spriteCache.beginCache();
+            for (int i = 0; i < slotCapacity; i++) {
+                spriteCache.add(region, 0, 0, 0, 0);
+            }
+            slotCacheIds[slot] = spriteCache.endCache();
+            slotColumns[slot] = -1;
+        }
+    }
+    
+    /**
+     * Bakes the solid tiles of a chunk whose first column is the given column of the map into a slot, replacing what the
+     * slot held. Only the first width columns of every row are read.
+     */
+    public void buildSlot(int slot, boolean[][] solid, int width, int firstColumn) {
+        slotColumns[slot] = -1;
+        slotWidths[slot] = width;
+        
+        AtlasRegion region = Block.block.getKeyFrame(0);
+        boolean empty = true;
+        for (int j = 0; j < solid.length; j++) {
+            for (int i = 0; i < width; i++) {
+                if (!solid[j][i]) continue;
+                
+                if (empty) {
+                    spriteCache.beginCache(slotCacheIds[slot]);
+                    empty = false;
+                }
+                spriteCache.add(region, (firstColumn + i) * TILE_DIMENSION, (rows - j) * TILE_DIMENSION);
+            }
+        }
+        if (!empty) {
+            spriteCache.endCache();
+            slotColumns[slot] = firstColumn;
+        }
+    }
+    
+    /**
+     * Stops drawing a slot filled by buildSlot().
+     */
+    public void clearSlot(int slot) {
+        slotColumns[slot] = -1;
+    }
+    
+    /**
+     * Draws the chunks that overlap the view of the camera. Must be called outside of SpriteBatch.begin() and end().
+     */
+    public void draw(OrthographicCamera camera) {
+        if (spriteCache == null) return;
+        
+        float halfWidth = camera.viewportWidth * camera.zoom / 2;
+        float halfHeight = camera.viewportHeight * camera.zoom / 2;
+        float chunkSize = CHUNK_TILES * TILE_DIMENSION;
+        
+        //tile row j is drawn at (rows - j) * TILE_DIMENSION, so chunk rows count down from the top of the map
+        float left = columnOffset * TILE_DIMENSION;
+        int firstColumn = Math.max(0, (int) Math.floor((camera.position.x - halfWidth - left) / chunkSize));
+        int lastColumn = Math.min(chunkColumns - 1, (int) Math.floor((camera.position.x + halfWidth - left) / chunkSize));
+        float top = (rows + 1) * TILE_DIMENSION;
+        int firstRow = Math.max(0, (int) Math.floor((top - (camera.position.y + halfHeight)) / chunkSize));
+        int lastRow = Math.min(chunkRows - 1, (int) Math.floor((top - (camera.position.y - halfHeight)) / chunkSize));
+        
+        spriteCache.setProjectionMatrix(camera.combined);
+        spriteCache.begin();
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (slotColumns[slot] == -1) continue;
+            
+            float slotLeft = slotColumns[slot] * TILE_DIMENSION;
+            float slotRight = slotLeft + slotWidths[slot] * TILE_DIMENSION;
+            if (slotRight >= camera.position.x - halfWidth && slotLeft <= camera.position.x + halfWidth) {
+                spriteCache.draw(slotCacheIds[slot]);
+            }
+        }
+        for (int chunkRow = firstRow; chunkRow <= lastRow; chunkRow++) {
+            for (int chunkColumn = firstColumn; chunkColumn <= lastColumn; chunkColumn++) {
+                int cacheId = cacheIds[chunkRow * chunkColumns + chunkColumn];
+                if (cacheId != -1) spriteCache.draw(cacheId);
+            }
+        }
+        spriteCache.end();
+    }
+    
+    @Override
+    public void dispose() {
+        if (spriteCache != null) spriteCache.dispose();
+    }
+}
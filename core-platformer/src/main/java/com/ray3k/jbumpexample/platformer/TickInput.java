@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) 2020 Raymond Buckley
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package com.ray3k.jbumpexample.platformer;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Input.Keys;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static com.ray3k.jbumpexample.platformer.Core.*;
+
+/**
+ * The input of the player for one tick. The entities read Core.input instead of polling Gdx.input so a tick can be
+ * driven by the keyboard or by an InputLog alike.
+ */
+public class TickInput {
+    public static final int LEFT = 1;
+    public static final int RIGHT = 1 << 1;
+    public static final int UP = 1 << 2;
+    /**
+     * Set on the tick after UP was first pressed, see Core.upJustPressed.
+     */
+    public static final int JUMP = 1 << 3;
+    /**
+     * The bits of the buttons held during the tick.
+     */
+    public int buttons;
+    /**
+     * The length of the tick.
+     */
+    public float delta;
+    
+    public void poll(float delta) {
+        this.delta = delta;
+        buttons = 0;
+        if (Gdx.input.isKeyPressed(Keys.LEFT)) buttons |= LEFT;
+        if (Gdx.input.isKeyPressed(Keys.RIGHT)) buttons |= RIGHT;
+        if (Gdx.input.isKeyPressed(Keys.UP)) buttons |= UP;
+        if (upJustPressed) buttons |= JUMP;
+    }
+    
+    public boolean isPressed(int button) {
+        return (buttons & button) != 0;
+    }
+    
+    /**
+     * Writes the tick in 5 bytes: the delta and the buttons.
+     */
+    public void write(DataOutputStream output) throws IOException {
+        output.writeFloat(delta);
+        output.writeByte(buttons);
+    }
+    
+    public void read(DataInputStream input) throws IOException {
+        delta = input.readFloat();
+        buttons = input.readUnsignedByte();
+    }
+}
@@ -0,0 +1,65 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) 2020 Raymond Buckley
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package com.ray3k.jbumpexample.tank;
+
+import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.audio.Sound;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
+
+/**
+ * The files of the game. They are loaded by an AssetManager while Core shows the LoadingScreen, so the atlas pages and
+ * the sounds are decoded on the loader thread. Once loaded, resolve() hands the animations and sounds to the entity
+ * classes before the first entity is created.
+ */
+public class Assets {
+    public static final String ATLAS = "textures.atlas";
+    public static final String BULLET_SOUND = "bullet.mp3";
+    public static final String LASER_SOUND = "laser.mp3";
+    public static final String HURT_SOUND = "hurt.mp3";
+    
+    /**
+     * Queues every file of the game.
+     */
+    public static void queue(AssetManager assetManager) {
+        assetManager.load(ATLAS, TextureAtlas.class);
+        queueSounds(assetManager);
+    }
+    
+    /**
+     * Queues the sounds only, for backends without graphics that use an empty atlas.
+     */
+    public static void queueSounds(AssetManager assetManager) {
+        assetManager.load(BULLET_SOUND, Sound.class);
+        assetManager.load(LASER_SOUND, Sound.class);
+        assetManager.load(HURT_SOUND, Sound.class);
+    }
+    
+    /**
+     * Builds the handles of the entity classes from the atlas and the sounds loaded by assetManager.
+     */
+    public static void resolve(TextureAtlas atlas, AssetManager assetManager) {
+        Player.resolve(atlas, assetManager);
+        Enemy.resolve(atlas);
+    }
+}
@@ -26,65 +26,259 @@ package com.ray3k.jbumpexample.tank;
 import com.badlogic.gdx.ApplicationAdapter;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Input.Keys;
-import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.assets.AssetManager;
 import com.badlogic.gdx.graphics.GL20;
 import com.badlogic.gdx.graphics.OrthographicCamera;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.g2d.TextureAtlas;
 import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Vector2;
-import com.badlogic.gdx.utils.SnapshotArray;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.TimeUtils;
 import com.badlogic.gdx.utils.viewport.ExtendViewport;
+import com.dongbat.jbump.CollisionFilter;
 import com.dongbat.jbump.Item;
-import com.dongbat.jbump.Rect;
 import com.dongbat.jbump.World;
+import com.ray3k.jbumpexample.tank.Player.Bullet;
 import space.earlygrey.shapedrawer.ShapeDrawer;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+
 /**
  * Initiates the main logic of the game, runs the main game loop, and renders the entities.
  */
 public class Core extends ApplicationAdapter {
 	public static SpriteBatch spriteBatch;
 	public static TextureAtlas textureAtlas;
+	/**
+	 * Loads the Assets in the background. Disposing it disposes the atlas and the sounds.
+	 */
+	public static AssetManager assetManager;
+	/**
+	 * Shown until assetManager has finished, then null.
+	 */
+	public LoadingScreen loadingScreen;
 	public static ShapeDrawer shapeDrawer;
+	/**
+	 * Sorts the sprites of a frame by layer and texture before they are drawn.
+	 */
+	public static RenderQueue renderQueue;
 	public static ExtendViewport viewport;
 	public static OrthographicCamera camera;
-	public static SnapshotArray<Entity> entities;
+	public static EntityManager entities;
 	public static World<Entity> world;
+	/**
+	 * The cell size of the world when the simulation is created, the default of jbump.
+	 */
+	public static float CELL_SIZE = 64f;
+	/**
+	 * Rebuilds the world with the cell size recommended by cellSizeTuner whenever the game is reset.
+	 */
+	public static boolean AUTO_CELL_SIZE;
+	/**
+	 * Compares the candidates checked per move for the current cell size and the sizes around the moving items.
+	 */
+	public static final CellSizeTuner cellSizeTuner = new CellSizeTuner();
+	/**
+	 * Shows hitboxes and frame statistics. Null when running without graphics.
+	 */
+	public static DebugOverlay debugOverlay;
 	public static final float ENEMY_DELAY = .5f;
 	public float enemyTimer;
 	public static Player player;
+	public static EntityPool<Enemy> enemyPool;
+	public static EntityPool<Bullet> bulletPool;
+	/**
+	 * Leads the enemies to the player over the area around the camera.
+	 */
+	public static FlowField flowField;
+	/**
+	 * Runs the segment queries of the entities once per tick, after they have moved.
+	 */
+	public static Raycasts raycasts;
 	public static final Vector2 vector2 = new Vector2();
+	/**
+	 * The number of simulation ticks per second. Lower it to run the physics at a lower rate than the display.
+	 */
+	public static float TICK_RATE = 60f;
+	/**
+	 * The most ticks simulated in one frame. Time that could not be caught up after a hitch is dropped.
+	 */
+	public static int MAX_TICKS_PER_FRAME = 5;
+	/**
+	 * How far the current frame is between the previous and the current tick, from 0 to 1.
+	 */
+	public static float interpolation;
+	public float accumulator;
+	/**
+	 * The input of the player for the current tick. Entities read it instead of polling Gdx.input.
+	 */
+	public static final TickInput input = new TickInput();
+	/**
+	 * Starts the sounds requested during the ticks of a frame, once per frame on the render thread.
+	 */
+	public static final SoundManager sounds = new SoundManager();
+	/**
+	 * Times the phases of every frame while its HUD or CSV stream is on.
+	 */
+	public static final FrameProfiler profiler = new FrameProfiler();
+	/**
+	 * A file to record the input of every tick to, or null. See InputLog.
+	 */
+	public static String RECORD_FILE;
+	/**
+	 * A file recorded with RECORD_FILE to drive the simulation from instead of the player, or null.
+	 */
+	public static String REPLAY_FILE;
+	/**
+	 * Records or plays back the input while RECORD_FILE or REPLAY_FILE is set. Null once a replay has ended.
+	 */
+	public static InputLog inputLog;
+	/**
+	 * The state right after the map was loaded. F5 restores it instead of loading the map again.
+	 */
+	public Snapshot startSnapshot;
+	/**
+	 * Captured with F6 and restored with F7. It is also written to CHECKPOINT_FILE so it survives a restart.
+	 */
+	public Snapshot checkpoint;
+	public static final String CHECKPOINT_FILE = "checkpoint-tank.snapshot";
+	/**
+	 * How far outside the view entities are still drawn, so sprites larger than their item don't pop in.
+	 */
+	public static final float CULL_MARGIN = 150f;
+	/**
+	 * The entities found in view by the last visibility pass, in the order of the entity list.
+	 */
+	public static final Array<Entity> visibleEntities = new Array<>();
+	private static final ArrayList<Item> visibleItems = new ArrayList<>();
+	private static final ListOrderComparator LIST_ORDER_COMPARATOR = new ListOrderComparator();
+	private static final Array<Enemy> steeringEnemies = new Array<>(true, 16, Enemy.class);
 
 	@Override
 	public void create() {
 		spriteBatch = new SpriteBatch();
-		textureAtlas = new TextureAtlas("textures.atlas");
 		camera = new OrthographicCamera();
 		viewport = new ExtendViewport(800, 800, camera);
-		entities = new SnapshotArray<>();
-		world = new World<>();
+		renderQueue = new RenderQueue();
+		debugOverlay = new DebugOverlay();
+		
+		//decode the atlas and the sounds on the loader thread while the loading screen is shown
+		loadingScreen = new LoadingScreen();
+		assetManager = new AssetManager();
+		Assets.queue(assetManager);
+	}
+	
+	/**
+	 * Called on the first frame after the Assets have loaded. Hands the loaded handles to the entity classes, then
+	 * creates the simulation.
+	 */
+	protected void assetsLoaded() {
+		textureAtlas = assetManager.get(Assets.ATLAS, TextureAtlas.class);
 		shapeDrawer = new ShapeDrawer(spriteBatch, textureAtlas.findRegion("white"));
+		Assets.resolve(textureAtlas, assetManager);
+		loadingScreen.dispose();
+		loadingScreen = null;
+		
+		createSimulation();
+	}
+	
+	/**
+	 * Creates the world, the entity list, and the pools, then spawns the entities. Nothing here touches the graphics
+	 * context so it can also be driven by a headless backend. textureAtlas and camera must be set and Assets.resolve()
+	 * called before calling.
+	 */
+	protected void createSimulation() {
+		entities = new EntityManager();
+		world = cellSizeTuner.createWorld(CELL_SIZE);
+		flowField = new FlowField();
+		raycasts = new Raycasts();
+		
+		//recycle the entities that are spawned continuously
+		enemyPool = new EntityPool<Enemy>(16) {
+			@Override
+			protected Enemy newObject() {
+				return new Enemy();
+			}
+		};
+		bulletPool = new EntityPool<Bullet>(64) {
+			@Override
+			protected Bullet newObject() {
+				return new Bullet();
+			}
+		};
+		
+		//seed the random numbers from the input log so a replay draws the same ones as the recording
+		if (REPLAY_FILE != null) inputLog = InputLog.replay(Gdx.files.local(REPLAY_FILE));
+		else if (RECORD_FILE != null) inputLog = InputLog.record(Gdx.files.local(RECORD_FILE), TimeUtils.millis());
+		if (inputLog != null) MathUtils.random.setSeed(inputLog.seed);
 		
 		//load map and spawn entities
 		loadMap();
+		startSnapshot = new Snapshot(this);
+		startSnapshot.capture();
+		checkpoint = new Snapshot(this);
 	}
 	
-	private void loadMap() {
-		for (Entity entity : entities) {
-			if (entity.item != null) world.remove(entity.item);
-		}
+	protected void loadMap() {
 		entities.clear();
 		
 		player = new Player();
+		entities.add(player);
+		entities.add(player.turretEntity);
+		entities.flush();
 	}
 
 	@Override
 	public void render() {
-		if (Gdx.input.isKeyJustPressed(Keys.F5)) {
-			loadMap();
+		//show the progress until the assets have loaded
+		if (loadingScreen != null) {
+			if (!assetManager.update()) {
+				loadingScreen.draw(assetManager.getProgress());
+				return;
+			}
+			assetsLoaded();
 		}
 		
+		if (Gdx.input.isKeyJustPressed(FrameProfiler.HUD_KEY)) profiler.toggleHud();
+		if (Gdx.input.isKeyJustPressed(FrameProfiler.CSV_KEY)) profiler.toggleCsv();
+		profiler.begin(FrameProfiler.FRAME);
+		
+		//allow player to reset the game, except while recording or replaying since restarts are not part of an input log
+		if (Gdx.input.isKeyJustPressed(Keys.F5) && inputLog == null) {
+			startSnapshot.restore();
+			tuneCellSize();
+		}
+		
+		//save and load a checkpoint
+		if (Gdx.input.isKeyJustPressed(Keys.F6) && inputLog == null) {
+			checkpoint.capture();
+			checkpoint.write(Gdx.files.local(CHECKPOINT_FILE));
+		}
+		if (Gdx.input.isKeyJustPressed(Keys.F7) && inputLog == null && Gdx.files.local(CHECKPOINT_FILE).exists()) {
+			checkpoint.read(Gdx.files.local(CHECKPOINT_FILE));
+			checkpoint.restore();
+		}
+		
+		if (Gdx.input.isKeyJustPressed(DebugOverlay.TOGGLE_KEY)) debugOverlay.toggle();
+		debugOverlay.begin();
+		
+		//run the simulation in fixed ticks
+		float tickTime = 1 / TICK_RATE;
+		accumulator += Gdx.graphics.getDeltaTime();
+		int ticks = 0;
+		while (accumulator >= tickTime && ticks < MAX_TICKS_PER_FRAME) {
+			tick(tickTime);
+			accumulator -= tickTime;
+			ticks++;
+		}
+		if (accumulator >= tickTime) accumulator %= tickTime;
+		interpolation = accumulator / tickTime;
+		profiler.begin(FrameProfiler.SOUND);
+		sounds.flush();
+		profiler.end(FrameProfiler.SOUND);
+		
 		Gdx.gl.glClearColor(1, 1, 1, 1);
 		Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
 		
@@ -92,46 +286,158 @@ public class Core extends ApplicationAdapter {
 		spriteBatch.setProjectionMatrix(camera.combined);
 		spriteBatch.begin();
 		
-		float delta = Gdx.graphics.getDeltaTime();
+		//queue the entities in view, then draw them sorted by layer and texture
+		profiler.begin(FrameProfiler.CULL);
+		findVisibleEntities();
+		profiler.end(FrameProfiler.CULL);
+		profiler.begin(FrameProfiler.DRAW);
+		for (int i = 0; i < visibleEntities.size; i++) {
+			visibleEntities.get(i).draw();
+		}
+		renderQueue.flush(spriteBatch);
+		profiler.end(FrameProfiler.DRAW);
+		
+		//draw debug
+		profiler.begin(FrameProfiler.DEBUG);
+		if (debugOverlay.enabled) debugOverlay.draw();
+		profiler.draw();
+		profiler.end(FrameProfiler.DEBUG);
+		
+		spriteBatch.end();
+		profiler.end(FrameProfiler.FRAME);
+		profiler.endFrame();
+	}
+	
+	/**
+	 * Logs the report of cellSizeTuner and, if AUTO_CELL_SIZE is set and it recommends another cell size, moves every
+	 * item into a world with that size. Only called between ticks so no entity holds on to the old world.
+	 */
+	protected void tuneCellSize() {
+		Gdx.app.log("Core", cellSizeTuner.report());
+		float cellSize = cellSizeTuner.getRecommendedCellSize();
+		if (AUTO_CELL_SIZE && cellSize != cellSizeTuner.cellSize) {
+			world = cellSizeTuner.rebuild(cellSize);
+			Gdx.app.log("Core", "Rebuilt the world with cell size " + cellSize + ".");
+		}
+	}
+	
+	/**
+	 * Collects the entities that overlap the view of the camera plus CULL_MARGIN. Entities with items are found by
+	 * querying the world. The few entities without items are checked against the view directly.
+	 */
+	private void findVisibleEntities() {
+		float halfWidth = camera.viewportWidth * camera.zoom / 2 + CULL_MARGIN;
+		float halfHeight = camera.viewportHeight * camera.zoom / 2 + CULL_MARGIN;
+		float left = camera.position.x - halfWidth;
+		float bottom = camera.position.y - halfHeight;
+		
+		visibleEntities.clear();
+		world.queryRect(left, bottom, halfWidth * 2, halfHeight * 2, CollisionFilter.defaultFilter, visibleItems);
+		for (int i = 0; i < visibleItems.size(); i++) {
+			visibleEntities.add((Entity) visibleItems.get(i).userData);
+		}
+		
+		Array<Entity> entitiesWithoutItems = entities.entitiesWithoutItems;
+		for (int i = 0; i < entitiesWithoutItems.size; i++) {
+			Entity entity = entitiesWithoutItems.get(i);
+			if (entity.isInView(left, bottom, left + halfWidth * 2, bottom + halfHeight * 2)) visibleEntities.add(entity);
+		}
+		
+		//keep the draw order of the entity list
+		visibleEntities.sort(LIST_ORDER_COMPARATOR);
+	}
+	
+	/**
+	 * Fills Core.input from the player, or from inputLog while it records or replays, then runs one tick with the delta
+	 * of the input. When a replay runs out of ticks the player takes over.
+	 */
+	protected void tick(float delta) {
+		profiler.begin(FrameProfiler.INPUT);
+		if (inputLog == null) {
+			input.poll(delta);
+		} else if (!inputLog.next(input, delta)) {
+			Gdx.app.log("Core", "Replay of " + REPLAY_FILE + " ended after " + inputLog.ticks + " ticks.");
+			inputLog.dispose();
+			inputLog = null;
+			input.poll(delta);
+		}
+		profiler.end(FrameProfiler.INPUT);
+		update(input.delta);
+	}
+	
+	/**
+	 * Advances the simulation by one tick of the given length: spawns enemies and calls logic on all entities.
+	 */
+	public void update(float delta) {
+		//remember where every entity started this tick for interpolation
+		for (int i = 0, n = entities.size; i < n; i++) {
+			entities.get(i).savePosition();
+		}
 		
 		//create enemies
+		profiler.begin(FrameProfiler.SPAWN);
 		enemyTimer -= delta;
 		if (enemyTimer < 0) {
 			enemyTimer = ENEMY_DELAY;
 			
-			Enemy enemy = new Enemy();
+			Enemy enemy = enemyPool.obtain();
 			vector2.set(camera.viewportWidth / 2, camera.viewportHeight / 2);
 			vector2.rotate(MathUtils.random(360f));
 			vector2.add(camera.position.x, camera.position.y);
 			enemy.x = vector2.x;
 			enemy.y = vector2.y;
+			enemy.savePosition();
+			entities.add(enemy);
 		}
+		profiler.end(FrameProfiler.SPAWN);
+		
+		//follow the player with the flow field, it is only rebuilt when the player changes cell
+		profiler.begin(FrameProfiler.FLOW_FIELD);
+		flowField.update(camera.position.x, camera.position.y, camera.viewportWidth * camera.zoom / 2,
+				camera.viewportHeight * camera.zoom / 2, player.x + player.bboxX + player.bboxWidth / 2,
+				player.y + player.bboxY + player.bboxHeight / 2);
+		profiler.end(FrameProfiler.FLOW_FIELD);
 		
-		//call logic on all entities
-		Object[] ents = entities.begin();
+		//steer the enemies in parallel before any of them moves
+		profiler.begin(FrameProfiler.STEER);
+		steeringEnemies.clear();
 		for (int i = 0, n = entities.size; i < n; i++) {
-			Entity entity = (Entity) ents[i];
-			entity.act(delta);
+			Entity entity = entities.get(i);
+			if (entity.category == Category.ENEMY) steeringEnemies.add((Enemy) entity);
 		}
-		entities.end();
+		Steering.steer(steeringEnemies, delta);
+		profiler.end(FrameProfiler.STEER);
 		
-		//draw all entities
-		for (Entity entity : entities) {
-			entity.draw();
-		}
+		//integrate the motion of every entity in one pass over the columns of the motion store
+		entities.motion.integrate(entities.size, delta);
 		
-		//draw debug
-		for (Entity entity : entities) {
-			Item item = entity.item;
-			if (item != null) {
-				shapeDrawer.setColor(Color.RED);
-				shapeDrawer.setDefaultLineWidth(1.0f);
-				Rect rect = world.getRect(item);
-				shapeDrawer.rectangle(rect.x, rect.y, rect.w, rect.h);
+		//call logic on all entities, skipping the ones removed earlier in this tick
+		profiler.begin(FrameProfiler.ACT);
+		cellSizeTuner.beginTick();
+		for (int i = 0, n = entities.size; i < n; i++) {
+			Entity entity = entities.get(i);
+			if (entity.removed) continue;
+			
+			if (profiler.enabled) {
+				long start = System.nanoTime();
+				entity.act(delta);
+				profiler.addEntityTime(entity.category, System.nanoTime() - start);
+			} else {
+				entity.act(delta);
 			}
 		}
+		profiler.end(FrameProfiler.ACT);
 		
-		spriteBatch.end();
+		//apply the spawns and removals queued during the tick
+		profiler.begin(FrameProfiler.FLUSH);
+		entities.flush();
+		profiler.end(FrameProfiler.FLUSH);
+		cellSizeTuner.endTick();
+		
+		//cast the rays submitted during the tick against the final positions
+		profiler.begin(FrameProfiler.RAYCAST);
+		raycasts.run();
+		profiler.end(FrameProfiler.RAYCAST);
 	}
 	
 	@Override
@@ -142,6 +448,20 @@ public class Core extends ApplicationAdapter {
 	@Override
 	public void dispose() {
 		spriteBatch.dispose();
-		textureAtlas.dispose();
+		debugOverlay.dispose();
+		if (loadingScreen != null) loadingScreen.dispose();
+		assetManager.dispose();
+		if (inputLog != null) inputLog.dispose();
+		profiler.dispose();
+	}
+	
+	/**
+	 * Sorts entities by their position in the entity list.
+	 */
+	private static class ListOrderComparator implements Comparator<Entity> {
+		@Override
+		public int compare(Entity o1, Entity o2) {
+			return Integer.compare(o1.index, o2.index);
+		}
 	}
 }
\ No newline at end of file
@@ -26,22 +26,31 @@ package com.ray3k.jbumpexample.tank;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.g2d.Animation;
 import com.badlogic.gdx.graphics.g2d.Animation.PlayMode;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
 import com.badlogic.gdx.graphics.g2d.TextureAtlas.AtlasRegion;
 import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Vector2;
 import com.dongbat.jbump.*;
 import com.dongbat.jbump.Response.Result;
 
+import java.nio.ByteBuffer;
+
 import static com.ray3k.jbumpexample.tank.Core.*;
 
 public class Enemy extends Entity {
-    public static final Animation<AtlasRegion> enemy = new Animation<>(1 / 30f, Core.textureAtlas.findRegions("t-fly"), PlayMode.LOOP);
+    public static Animation<AtlasRegion> enemy;
     public static final float MOVE_SPEED = 250f;
-    public static final EnemyCollisionFilter ENEMY_COLLISION_FILTER = new EnemyCollisionFilter();
     public float deathTimer;
     public static final float DEATH_TIME = 1f;
     public static final float DEATH_FRICTION = 100f;
-    public static final Vector2 vector2 = new Vector2();
+    public static final float DEATH_COLOR = Color.DARK_GRAY.toFloatBits();
+    
+    /**
+     * Builds the animation of the enemies. Called by Assets.resolve().
+     */
+    public static void resolve(TextureAtlas atlas) {
+        enemy = new Animation<>(1 / 30f, atlas.findRegions("t-fly"), PlayMode.LOOP);
+    }
     
     public Enemy() {
         animation = enemy;
@@ -50,86 +59,111 @@ public class Enemy extends Entity {
         bboxWidth = 90;
         bboxHeight = 90;
         item = new Item<>(this);
+        setCategory(Category.ENEMY);
+        layer = RenderQueue.LAYER_ENEMIES;
         
         deltaX = -MOVE_SPEED;
-        
-        entities.add(this);
-        world.add(item, x, y, bboxWidth, bboxHeight);
     }
     
     @Override
-    public void act(float delta) {
+    public void reset() {
+        super.reset();
+        deathTimer = 0;
+        deltaX = -MOVE_SPEED;
+    }
+    
+    /**
+     * Computes the velocity for this tick. Only reads the player and the flow field and writes the fields of this enemy so it can run on any
+     * thread, see {@link Steering}.
+     * @param temp scratch vector owned by the calling thread
+     */
+    public void steer(float delta, Vector2 temp) {
         if (deathTimer <= 0) {
             //update animation frame
             animationTime += delta;
     
-            //face player
-            vector2.set(player.x, player.y);
-            vector2.sub(x, y);
-            rotation = vector2.angle();
+            //face along the flow field, or straight at the player where it is in sight or the field has no direction
+            if (!flowField.getDirection(x + bboxX + bboxWidth / 2, y + bboxY + bboxHeight / 2, temp)) {
+                temp.set(player.x, player.y);
+                temp.sub(x, y);
+            }
+            rotation = temp.angle();
     
             //move towards player
-            vector2.set(MOVE_SPEED, 0);
-            vector2.rotate(rotation);
-            deltaX = vector2.x;
-            deltaY = vector2.y;
+            temp.set(MOVE_SPEED, 0);
+            temp.rotate(rotation);
+            setVelocity(temp.x, temp.y);
         } else {
-            vector2.set(deltaX, deltaY);
-            vector2.setLength(Utils.approach(vector2.len(), 0, DEATH_FRICTION));
-            deltaX = vector2.x;
-            deltaY = vector2.y;
+            temp.set(deltaX, deltaY);
+            temp.setLength(Utils.approach(temp.len(), 0, DEATH_FRICTION));
+            setVelocity(temp.x, temp.y);
         }
+    }
     
-        //update physics
-        deltaX += delta * gravityX;
-        deltaY += delta * gravityY;
-        x += delta * deltaX;
-        y += delta * deltaY;
+    /**
+     * Moves the enemy to the position integrated by the MotionStore from the velocity computed by
+     * {@link #steer(float, Vector2)}. Must be called on the render thread.
+     */
+    @Override
+    public void act(float delta) {
+        //take the physics integrated for this tick
+        MotionStore motion = entities.motion;
+        x = motion.x[index];
+        y = motion.y[index];
+        deltaX = motion.deltaX[index];
+        deltaY = motion.deltaY[index];
 
         //handle collisions
-        Result result = Core.world.move(item, x + bboxX, y + bboxY, ENEMY_COLLISION_FILTER);
-        for (int i = 0; i < result.projectedCollisions.size(); i++) {
-            Collision collision = result.projectedCollisions.get(i);
-            Entity other = (Entity) collision.other.userData;
-            if (other instanceof Enemy) {
-                Enemy enemy = (Enemy) other;
-                if (enemy.isDying()) {
-
-                }
-            }
-        }
+        cellSizeTuner.recordMove(this, x + bboxX, y + bboxY);
+        Result result = Core.world.move(item, x + bboxX, y + bboxY, Category.FILTER);
+        handleContacts(result);
 
         //update position based on collisions
         Rect rect = Core.world.getRect(item);
         x = rect.x - bboxX;
         y = rect.y - bboxY;
+        motion.x[index] = x;
+        motion.y[index] = y;
     
         //handle death
         if (deathTimer > 0) {
             deathTimer -= delta;
             if (deathTimer <= 0) {
-                entities.removeValue(this, true);
-                Core.world.remove(item);
+                entities.remove(this);
             }
         }
     }
     
+    @Override
+    public void despawned() {
+        enemyPool.free(this);
+    }
+    
+    @Override
+    public void dispatchContact(Entity receiver, Collision collision) {
+        receiver.contactEnemy(this, collision);
+    }
+    
+    @Override
+    public void writeState(ByteBuffer buffer) {
+        super.writeState(buffer);
+        buffer.putFloat(deathTimer);
+    }
+    
+    @Override
+    public void readState(ByteBuffer buffer) {
+        super.readState(buffer);
+        deathTimer = buffer.getFloat();
+        color = isDying() ? DEATH_COLOR : Color.WHITE_FLOAT_BITS;
+    }
+    
     public boolean isDying() {
         return deathTimer > 0;
     }
     
     public void die() {
-        color = Color.DARK_GRAY;
-        deltaX = 0;
-        deltaY = 0;
+        color = DEATH_COLOR;
+        setVelocity(0, 0);
         deathTimer = DEATH_TIME;
     }
-    
-    public static class EnemyCollisionFilter implements CollisionFilter {
-        @Override
-        public Response filter(Item item, Item other) {
-            if (other.userData instanceof  Enemy) return Response.cross;
-            return null;
-        }
-    }
 }
@@ -0,0 +1,51 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) 2020 Raymond Buckley
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package com.ray3k.jbumpexample.tank;
+
+import com.badlogic.gdx.utils.Pool;
+
+/**
+ * Pool that recycles entities together with their jbump items. Counts how many obtains were served from the free list
+ * (hits) and how many had to allocate a new entity (misses) so steady-state spawning can be verified allocation free.
+ */
+public abstract class EntityPool<T extends Entity> extends Pool<T> {
+    public int hits;
+    public int misses;
+    
+    public EntityPool(int initialCapacity) {
+        super(initialCapacity);
+    }
+    
+    @Override
+    public T obtain() {
+        if (getFree() > 0) hits++;
+        else misses++;
+        return super.obtain();
+    }
+    
+    public void resetCounters() {
+        hits = 0;
+        misses = 0;
+    }
+}
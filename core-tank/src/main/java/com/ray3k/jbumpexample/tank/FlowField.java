@@ -0,0 +1,280 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) 2020 Raymond Buckley
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package com.ray3k.jbumpexample.tank;
+
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.IntSet;
+
+/**
+ * A grid over the area around the camera that stores in every cell the direction toward the target around the cells
+ * marked with setBlocked(). The distances are found with a Dijkstra search from the cell of the target over eight
+ * neighbours, with diagonal steps costing the square root of two, so the cost of finding a path is paid once per change
+ * of cell instead of once per enemy. Cells with a clear line to the cell of the target store no direction so the enemies
+ * in them head straight for the target. While no cell is blocked that is every cell, so no search is run at all. Looking
+ * up a direction is constant time and only reads the grid, so it is safe from the steering threads.
+ */
+public class FlowField {
+    public static final float CELL_SIZE = 100f;
+    /**
+     * How many cells the field extends beyond the area it is asked to cover on each side.
+     */
+    public static final int MARGIN = 2;
+    private static final int[] NEIGHBOR_COLUMNS = {1, 1, 0, -1, -1, -1, 0, 1};
+    private static final int[] NEIGHBOR_ROWS = {0, 1, 1, 1, 0, -1, -1, -1};
+    private static final float DIAGONAL_COST = (float) Math.sqrt(2);
+    public int columns;
+    public int rows;
+    /**
+     * The column and row of the bottom left cell in world cells.
+     */
+    public int originColumn;
+    public int originRow;
+    public int targetColumn;
+    public int targetRow;
+    /**
+     * The blocked cells in world cells, packed by cellKey().
+     */
+    private final IntSet blockedCells = new IntSet();
+    private boolean dirty = true;
+    /**
+     * False while the field holds no directions because no cell is blocked.
+     */
+    private boolean searched;
+    private boolean[] blocked = new boolean[0];
+    private float[] distances = new float[0];
+    //a binary min-heap of cells keyed by distance, a cell is pushed again when its distance drops
+    private int[] heapCells = new int[0];
+    private float[] heapDistances = new float[0];
+    private int heapSize;
+    private boolean[] inSight = new boolean[0];
+    private float[] directionsX = new float[0];
+    private float[] directionsY = new float[0];
+    /**
+     * Counts how many times the field has been searched. Useful to check that it is not searched every tick.
+     */
+    public int builds;
+    
+    /**
+     * Marks a cell as impassable or clears it, in world cells of CELL_SIZE. The field is rebuilt at the next update().
+     * Columns and rows must fit in 16 bits.
+     */
+    public void setBlocked(int column, int row, boolean blocked) {
+        boolean changed = blocked ? blockedCells.add(cellKey(column, row)) : blockedCells.remove(cellKey(column, row));
+        if (changed) dirty = true;
+    }
+    
+    public boolean isBlocked(int column, int row) {
+        return blockedCells.contains(cellKey(column, row));
+    }
+    
+    public void clearBlocked() {
+        if (blockedCells.size == 0) return;
+        blockedCells.clear();
+        dirty = true;
+    }
+    
+    private static int cellKey(int column, int row) {
+        return column << 16 | row & 0xFFFF;
+    }
+    
+    /**
+     * Moves the field over the given area and rebuilds it if the area, the cell of the target, or the blocked cells have
+     * changed since the last call.
+     */
+    public void update(float centerX, float centerY, float halfWidth, float halfHeight, float targetX, float targetY) {
+        int originColumn = MathUtils.floor((centerX - halfWidth) / CELL_SIZE) - MARGIN;
+        int originRow = MathUtils.floor((centerY - halfHeight) / CELL_SIZE) - MARGIN;
+        int columns = MathUtils.ceil(halfWidth * 2 / CELL_SIZE) + 1 + MARGIN * 2;
+        int rows = MathUtils.ceil(halfHeight * 2 / CELL_SIZE) + 1 + MARGIN * 2;
+        int targetColumn = MathUtils.floor(targetX / CELL_SIZE);
+        int targetRow = MathUtils.floor(targetY / CELL_SIZE);
+        
+        if (originColumn == this.originColumn && originRow == this.originRow && columns == this.columns
+                && rows == this.rows && targetColumn == this.targetColumn && targetRow == this.targetRow && !dirty) return;
+        
+        this.originColumn = originColumn;
+        this.originRow = originRow;
+        this.columns = columns;
+        this.rows = rows;
+        this.targetColumn = targetColumn;
+        this.targetRow = targetRow;
+        dirty = false;
+        build();
+    }
+    
+    private void build() {
+        //with nothing in the way every cell is in sight of the target
+        searched = blockedCells.size > 0;
+        if (!searched) return;
+        
+        builds++;
+        int cells = columns * rows;
+        if (distances.length < cells) {
+            blocked = new boolean[cells];
+            distances = new float[cells];
+            heapCells = new int[cells * NEIGHBOR_COLUMNS.length];
+            heapDistances = new float[cells * NEIGHBOR_COLUMNS.length];
+            inSight = new boolean[cells];
+            directionsX = new float[cells];
+            directionsY = new float[cells];
+        }
+        
+        //search outward from the target, taking the closest cell not yet settled first
+        for (int i = 0; i < cells; i++) {
+            distances[i] = Float.MAX_VALUE;
+            blocked[i] = blockedCells.contains(cellKey(originColumn + i % columns, originRow + i / columns));
+        }
+        heapSize = 0;
+        int column = targetColumn - originColumn;
+        int row = targetRow - originRow;
+        if (column >= 0 && column < columns && row >= 0 && row < rows) {
+            distances[row * columns + column] = 0;
+            push(row * columns + column, 0);
+        }
+        while (heapSize > 0) {
+            float distance = heapDistances[0];
+            int cell = pop();
+            if (distance > distances[cell]) continue;
+            
+            int cellColumn = cell % columns;
+            int cellRow = cell / columns;
+            for (int i = 0; i < NEIGHBOR_COLUMNS.length; i++) {
+                int neighborColumn = cellColumn + NEIGHBOR_COLUMNS[i];
+                int neighborRow = cellRow + NEIGHBOR_ROWS[i];
+                if (neighborColumn < 0 || neighborColumn >= columns || neighborRow < 0 || neighborRow >= rows) continue;
+                
+                int neighbor = neighborRow * columns + neighborColumn;
+                if (blocked[neighbor]) continue;
+                
+                //don't cut the corner of a blocked cell
+                if (NEIGHBOR_COLUMNS[i] != 0 && NEIGHBOR_ROWS[i] != 0
+                        && (blocked[cellRow * columns + neighborColumn] || blocked[neighborRow * columns + cellColumn])) continue;
+                
+                float neighborDistance = distance + (NEIGHBOR_COLUMNS[i] != 0 && NEIGHBOR_ROWS[i] != 0 ? DIAGONAL_COST : 1);
+                if (neighborDistance >= distances[neighbor]) continue;
+                distances[neighbor] = neighborDistance;
+                push(neighbor, neighborDistance);
+            }
+        }
+        
+        //cells the search reached all the way along the line to the target can head straight for it
+        for (int i = 0; i < cells; i++) {
+            inSight[i] = hasLineOfSight(i % columns, i / columns, column, row);
+        }
+        
+        //point every other cell down the slope of the distances
+        for (int i = 0; i < cells; i++) {
+            int cellColumn = i % columns;
+            int cellRow = i / columns;
+            float distance = distances[i];
+            float directionX = distanceAt(cellColumn - 1, cellRow, distance) - distanceAt(cellColumn + 1, cellRow, distance);
+            float directionY = distanceAt(cellColumn, cellRow - 1, distance) - distanceAt(cellColumn, cellRow + 1, distance);
+            float length = (float) Math.sqrt(directionX * directionX + directionY * directionY);
+            if (inSight[i] || distance == Float.MAX_VALUE || length == 0) {
+                directionsX[i] = 0;
+                directionsY[i] = 0;
+            } else {
+                directionsX[i] = directionX / length;
+                directionsY[i] = directionY / length;
+            }
+        }
+    }
+    
+    /**
+     * Walks the cells on the line between the centers of two cells of the field. Blocked cells and cells the search did
+     * not reach block the line.
+     */
+    private boolean hasLineOfSight(int fromColumn, int fromRow, int toColumn, int toRow) {
+        if (toColumn < 0 || toColumn >= columns || toRow < 0 || toRow >= rows) return false;
+        
+        int steps = Math.max(Math.abs(toColumn - fromColumn), Math.abs(toRow - fromRow)) * 2;
+        for (int step = 0; step <= steps; step++) {
+            float t = steps == 0 ? 0 : (float) step / steps;
+            int column = MathUtils.round(fromColumn + (toColumn - fromColumn) * t);
+            int row = MathUtils.round(fromRow + (toRow - fromRow) * t);
+            if (distances[row * columns + column] == Float.MAX_VALUE) return false;
+        }
+        return true;
+    }
+    
+    private void push(int cell, float distance) {
+        int index = heapSize++;
+        while (index > 0) {
+            int parent = (index - 1) >> 1;
+            if (heapDistances[parent] <= distance) break;
+            heapCells[index] = heapCells[parent];
+            heapDistances[index] = heapDistances[parent];
+            index = parent;
+        }
+        heapCells[index] = cell;
+        heapDistances[index] = distance;
+    }
+    
+    private int pop() {
+        int cell = heapCells[0];
+        int lastCell = heapCells[--heapSize];
+        float lastDistance = heapDistances[heapSize];
+        int index = 0;
+        while (true) {
+            int child = index * 2 + 1;
+            if (child >= heapSize) break;
+            if (child + 1 < heapSize && heapDistances[child + 1] < heapDistances[child]) child++;
+            if (heapDistances[child] >= lastDistance) break;
+            heapCells[index] = heapCells[child];
+            heapDistances[index] = heapDistances[child];
+            index = child;
+        }
+        heapCells[index] = lastCell;
+        heapDistances[index] = lastDistance;
+        return cell;
+    }
+    
+    /**
+     * Cells outside the field or not reached by the search count as one step further than the cell next to them.
+     */
+    private float distanceAt(int column, int row, float fallback) {
+        if (column < 0 || column >= columns || row < 0 || row >= rows) return fallback + 1;
+        float distance = distances[row * columns + column];
+        return distance == Float.MAX_VALUE ? fallback + 1 : distance;
+    }
+    
+    /**
+     * Writes the unit direction toward the target at the given position into the vector.
+     * @return false if the position is outside the field, in sight of the cell of the target, or has no path to it. The
+     * vector is left unchanged.
+     */
+    public boolean getDirection(float x, float y, Vector2 direction) {
+        int column = MathUtils.floor(x / CELL_SIZE) - originColumn;
+        int row = MathUtils.floor(y / CELL_SIZE) - originRow;
+        if (column < 0 || column >= columns || row < 0 || row >= rows) return false;
+        
+        if (!searched) return false;
+        
+        int cell = row * columns + column;
+        if (directionsX[cell] == 0 && directionsY[cell] == 0) return false;
+        direction.set(directionsX[cell], directionsY[cell]);
+        return true;
+    }
+}
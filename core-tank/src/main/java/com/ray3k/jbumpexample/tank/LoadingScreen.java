@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) 2020 Raymond Buckley
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package com.ray3k.jbumpexample.tank;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Pixmap.Format;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.utils.Disposable;
+
+import static com.ray3k.jbumpexample.tank.Core.*;
+
+/**
+ * Draws a progress bar while Core.assetManager loads the Assets. Its only texture is a single white pixel made in code,
+ * so it is shown from the first frame.
+ */
+public class LoadingScreen implements Disposable {
+    public static final float BAR_WIDTH = 400f;
+    public static final float BAR_HEIGHT = 20f;
+    private final Texture pixel;
+    private final Matrix4 screenMatrix = new Matrix4();
+    
+    public LoadingScreen() {
+        Pixmap pixmap = new Pixmap(1, 1, Format.RGBA8888);
+        pixmap.setColor(Color.WHITE);
+        pixmap.fill();
+        pixel = new Texture(pixmap);
+        pixmap.dispose();
+    }
+    
+    /**
+     * Draws the bar filled to the given progress, from 0 to 1.
+     */
+    public void draw(float progress) {
+        Gdx.gl.glClearColor(1, 1, 1, 1);
+        Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
+        
+        float width = Gdx.graphics.getWidth();
+        float height = Gdx.graphics.getHeight();
+        float x = (width - BAR_WIDTH) / 2;
+        float y = (height - BAR_HEIGHT) / 2;
+        screenMatrix.setToOrtho2D(0, 0, width, height);
+        spriteBatch.setProjectionMatrix(screenMatrix);
+        spriteBatch.begin();
+        spriteBatch.setColor(Color.LIGHT_GRAY);
+        spriteBatch.draw(pixel, x, y, BAR_WIDTH, BAR_HEIGHT);
+        spriteBatch.setColor(Color.DARK_GRAY);
+        spriteBatch.draw(pixel, x, y, BAR_WIDTH * progress, BAR_HEIGHT);
+        spriteBatch.setColor(Color.WHITE);
+        spriteBatch.end();
+    }
+    
+    @Override
+    public void dispose() {
+        pixel.dispose();
+    }
+}
@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) 2020 Raymond Buckley
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package com.ray3k.jbumpexample.tank;
+
+/**
+ * The motion of the live entities as parallel columns indexed by Entity.index, kept in the same order as the entity
+ * list by EntityManager. integrate() advances every entity with a few tight loops over the columns, which the JIT can
+ * unroll and vectorize. For Enemy and Bullet, which move by integration, the columns are the source of truth: act()
+ * reads the integrated position from them and writes back the position resolved by the world. Their x, y, deltaX, and
+ * deltaY fields mirror the columns for everything else. Other entities move themselves and ignore their columns.
+ */
+public class MotionStore {
+    public float[] x;
+    public float[] y;
+    public float[] deltaX;
+    public float[] deltaY;
+    public float[] gravityX;
+    public float[] gravityY;
+    
+    public MotionStore(int capacity) {
+        x = new float[capacity];
+        y = new float[capacity];
+        deltaX = new float[capacity];
+        deltaY = new float[capacity];
+        gravityX = new float[capacity];
+        gravityY = new float[capacity];
+    }
+    
+    /**
+     * Grows the columns to hold at least the given number of entities, keeping their contents.
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity <= x.length) return;
+        capacity = Math.max(capacity, x.length * 2);
+        x = grow(x, capacity);
+        y = grow(y, capacity);
+        deltaX = grow(deltaX, capacity);
+        deltaY = grow(deltaY, capacity);
+        gravityX = grow(gravityX, capacity);
+        gravityY = grow(gravityY, capacity);
+    }
+    
+    private static float[] grow(float[] column, int capacity) {
+        float[] newColumn = new float[capacity];
+        System.arraycopy(column, 0, newColumn, 0, column.length);
+        return newColumn;
+    }
+    
+    /**
+     * Copies the motion fields of the entity into the columns at its index.
+     */
+    public void load(Entity entity) {
+        int index = entity.index;
+        x[index] = entity.x;
+        y[index] = entity.y;
+        deltaX[index] = entity.deltaX;
+        deltaY[index] = entity.deltaY;
+        gravityX[index] = entity.gravityX;
+        gravityY[index] = entity.gravityY;
+    }
+    
+    /**
+     * Moves the motion of one index to another, as the entity list does when it fills the slot of a removed entity.
+     */
+    public void move(int from, int to) {
+        x[to] = x[from];
+        y[to] = y[from];
+        deltaX[to] = deltaX[from];
+        deltaY[to] = deltaY[from];
+        gravityX[to] = gravityX[from];
+        gravityY[to] = gravityY[from];
+    }
+    
+    /**
+     * Applies gravity to the velocity and velocity to the position of the first size entities. Each loop touches two
+     * or three columns from start to end without branches so the JIT can turn it into SIMD instructions.
+     */
+    public void integrate(int size, float delta) {
+        float[] x = this.x;
+        float[] y = this.y;
+        float[] deltaX = this.deltaX;
+        float[] deltaY = this.deltaY;
+        float[] gravityX = this.gravityX;
+        float[] gravityY = this.gravityY;
+        
+        for (int i = 0; i < size; i++) {
+            deltaX[i] += gravityX[i] * delta;
+        }
+        for (int i = 0; i < size; i++) {
+            deltaY[i] += gravityY[i] * delta;
+        }
+        for (int i = 0; i < size; i++) {
+            x[i] += deltaX[i] * delta;
+        }
+        for (int i = 0; i < size; i++) {
+            y[i] += deltaY[i] * delta;
+        }
+    }
+}
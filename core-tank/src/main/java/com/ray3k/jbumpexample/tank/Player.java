@@ -24,34 +24,33 @@
 package com.ray3k.jbumpexample.tank;
 
 import com.badlogic.gdx.Gdx;
-import com.badlogic.gdx.Input.Buttons;
-import com.badlogic.gdx.Input.Keys;
+import com.badlogic.gdx.assets.AssetManager;
 import com.badlogic.gdx.audio.Sound;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.g2d.Animation;
 import com.badlogic.gdx.graphics.g2d.Animation.PlayMode;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
 import com.badlogic.gdx.graphics.g2d.TextureAtlas.AtlasRegion;
 import com.badlogic.gdx.math.Vector2;
-import com.badlogic.gdx.math.Vector3;
 import com.dongbat.jbump.*;
 import com.dongbat.jbump.Response.Result;
 
-import java.util.ArrayList;
+import java.nio.ByteBuffer;
 
 import static com.ray3k.jbumpexample.tank.Core.*;
 import static com.ray3k.jbumpexample.tank.Utils.approach360;
 
 public class Player extends Entity {
-    public static final Animation<AtlasRegion> tank = new Animation<>(1 / 30f, Core.textureAtlas.findRegions("t-tank"), PlayMode.LOOP);
-    public static final Animation<AtlasRegion> turret = new Animation<>(1 / 30f, Core.textureAtlas.findRegions("t-tank-turret"), PlayMode.LOOP);
-    public static final Animation<AtlasRegion> bullet = new Animation<>(1 / 30f, Core.textureAtlas.findRegions("t-bullet"), PlayMode.LOOP);
-    public static final Sound bulletSound = Gdx.audio.newSound(Gdx.files.internal("bullet.mp3"));
-    public static final Sound laserSound = Gdx.audio.newSound(Gdx.files.internal("laser.mp3"));
-    public static final Sound hurtSound = Gdx.audio.newSound(Gdx.files.internal("hurt.mp3"));
-    public static final PlayerCollisionFilter PLAYER_COLLISION_FILTER = new PlayerCollisionFilter();
-    public static final BulletCollisionFilter BULLLET_COLLISION_FILTER = new BulletCollisionFilter();
+    public static Animation<AtlasRegion> tank;
+    public static Animation<AtlasRegion> turret;
+    public static Animation<AtlasRegion> bullet;
+    public static SoundEffect bulletSound;
+    public static SoundEffect laserSound;
+    public static SoundEffect hurtSound;
+    public static AtlasRegion white;
+    public static final float LASER_COLOR = Color.GREEN.toFloatBits();
+    public static final float LASER_WIDTH = 1f;
     public static final Vector2 vector2 = new Vector2();
-    public static final Vector3 vector3 = new Vector3();
     public static final Collisions tempCollisions = new Collisions();
     public static final float MOVE_ACCELERATION = 1600f;
     public static final float MOVE_BRAKE = 2600f;
@@ -63,9 +62,26 @@ public class Player extends Entity {
     public static final float BULLET_SPEED = 1200f;
     public static final float BULLET_DELAY = .025f;
     public static final float BULLET_PUSH_MAGNITUDE = .25f;
+    public static final float BULLET_WIDTH = 31f;
+    public static final float BULLET_HEIGHT = 34f;
+    public static final float TURRET_WIDTH = 242f;
+    public static final float TURRET_HEIGHT = 242f;
     public float bulletTimer;
     public Turret turretEntity;
-    public static final ArrayList<ItemInfo> infos = new ArrayList<>();
+    public static final float LASER_LENGTH = 800f;
+    
+    /**
+     * Builds the animations and sounds of the player, the turret, and the bullets. Called by Assets.resolve().
+     */
+    public static void resolve(TextureAtlas atlas, AssetManager assetManager) {
+        tank = new Animation<>(1 / 30f, atlas.findRegions("t-tank"), PlayMode.LOOP);
+        turret = new Animation<>(1 / 30f, atlas.findRegions("t-tank-turret"), PlayMode.LOOP);
+        bullet = new Animation<>(1 / 30f, atlas.findRegions("t-bullet"), PlayMode.LOOP);
+        white = atlas.findRegion("white");
+        bulletSound = new SoundEffect(assetManager.get(Assets.BULLET_SOUND, Sound.class), 3, .06f, .18f);
+        laserSound = new SoundEffect(assetManager.get(Assets.LASER_SOUND, Sound.class), 2, .1f, .32f);
+        hurtSound = new SoundEffect(assetManager.get(Assets.HURT_SOUND, Sound.class), 4, .05f, .27f);
+    }
     
     public Player() {
         animation = tank;
@@ -74,14 +90,13 @@ public class Player extends Entity {
         bboxWidth = 100;
         bboxHeight = 100;
         item = new Item<>(this);
+        setCategory(Category.PLAYER);
+        layer = RenderQueue.LAYER_PLAYER;
         x = Gdx.graphics.getWidth() / 2;
         y = Gdx.graphics.getHeight() / 2;
-        
-        entities.add(this);
-        world.add(item, x + bboxX, y + bboxY, bboxWidth, bboxHeight);
+        savePosition();
         
         turretEntity = new Turret();
-        entities.add(turretEntity);
     }
     
     @Override
@@ -90,10 +105,10 @@ public class Player extends Entity {
         animationTime += delta;
         
         //handle movement and input
-        boolean left = Gdx.input.isKeyPressed(Keys.LEFT);
-        boolean right = Gdx.input.isKeyPressed(Keys.RIGHT);
-        boolean up = Gdx.input.isKeyPressed(Keys.UP);
-        boolean down = Gdx.input.isKeyPressed(Keys.DOWN);
+        boolean left = input.isPressed(TickInput.LEFT);
+        boolean right = input.isPressed(TickInput.RIGHT);
+        boolean up = input.isPressed(TickInput.UP);
+        boolean down = input.isPressed(TickInput.DOWN);
         float direction = 0f;
         if (left || right || up || down) {
             if (left || right) {
@@ -125,25 +140,9 @@ public class Player extends Entity {
         y += delta * deltaY;
         
         //handle collisions
-        Result result = world.move(item, x + bboxX, y + bboxY, PLAYER_COLLISION_FILTER);
-        for (int i = 0; i < result.projectedCollisions.size(); i++) {
-            Collision collision = result.projectedCollisions.get(i);
-            if (collision.other.userData instanceof Enemy) {
-                Enemy enemy = (Enemy) collision.other.userData;
-                if (!enemy.isDying()) {
-                    //ran into enemy: kill the player
-                    entities.removeValue(this, true);
-                    if (item != null) {
-                        world.remove(item);
-                        item = null;
-                    }
-                    hurtSound.play();
-                    
-                    //remove the turret
-                    entities.removeValue(turretEntity, true);
-                }
-            }
-        }
+        cellSizeTuner.recordMove(this, x + bboxX, y + bboxY);
+        Result result = world.move(item, x + bboxX, y + bboxY, Category.FILTER);
+        handleContacts(result);
         
         //update position based on collisions
         Rect rect = world.getRect(item);
@@ -153,17 +152,47 @@ public class Player extends Entity {
         }
     }
     
+    @Override
+    public void writeState(ByteBuffer buffer) {
+        super.writeState(buffer);
+        buffer.putFloat(bulletTimer);
+    }
+    
+    @Override
+    public void readState(ByteBuffer buffer) {
+        super.readState(buffer);
+        bulletTimer = buffer.getFloat();
+    }
+    
+    @Override
+    public void contactEnemy(Enemy enemy, Collision collision) {
+        //a player touching several enemies only dies once
+        if (!enemy.isDying() && !removed) {
+            //ran into enemy: kill the player
+            entities.remove(this);
+            hurtSound.play();
+            
+            //remove the turret
+            entities.remove(turretEntity);
+        }
+    }
+    
     /**
      * Class to render turret graphic and shoot bullets
      */
     public class Turret extends Entity {
         private float width;
         private float height;
+        /**
+         * The laser sight, cast at the end of every tick so draw() only reads the result.
+         */
+        public final Raycast laser = new Raycast(1 << Category.ENEMY);
         
         public Turret() {
             animation = turret;
-            width = turret.getKeyFrames()[0].getRegionWidth();
-            height = turret.getKeyFrames()[0].getRegionHeight();
+            layer = RenderQueue.LAYER_TURRET;
+            width = TURRET_WIDTH;
+            height = TURRET_HEIGHT;
         }
     
         @Override
@@ -171,11 +200,9 @@ public class Player extends Entity {
             x = Player.this.x + Player.this.bboxX + Player.this.bboxWidth / 2 - width / 2;
             y = Player.this.y + Player.this.bboxY + Player.this.bboxHeight / 2- height / 2;
             
-            boolean leftClick = Gdx.input.isButtonPressed(Buttons.LEFT);
+            boolean leftClick = input.isPressed(TickInput.FIRE);
             
-            vector3.set(Gdx.input.getX(), Gdx.input.getY(), 0);
-            camera.unproject(vector3);
-            vector2.set(vector3.x, vector3.y);
+            vector2.set(input.aimX, input.aimY);
             vector2.sub(x + width / 2, y + width / 2);
             rotation = approach360(rotation, vector2.angle(), (leftClick ? TURRET_ROTATION_SPEED_FIRING : TURRET_ROTATION_SPEED) * delta);
             
@@ -188,7 +215,7 @@ public class Player extends Entity {
                 bulletTimer = BULLET_DELAY;
                 bulletSound.play();
                 
-                Bullet bullet = new Bullet();
+                Bullet bullet = bulletPool.obtain();
                 vector2.set(BULLET_START_DISTANCE, 0);
                 vector2.rotate(rotation);
                 bullet.x = x + width / 2 - bullet.bboxWidth / 2 + vector2.x;
@@ -198,114 +225,113 @@ public class Player extends Entity {
                 vector2.rotate(rotation);
                 bullet.deltaX = vector2.x;
                 bullet.deltaY = vector2.y;
+                bullet.savePosition();
     
                 entities.add(bullet);
-                world.add(bullet.item, bullet.x + bullet.bboxX, bullet.y + bullet.bboxY, bullet.bboxWidth, bullet.bboxHeight);
             }
+            
+            //aim the laser from the barrel
+            vector2.set(BULLET_START_DISTANCE, 0);
+            vector2.rotate(rotation);
+            float laserX = x + width / 2 + vector2.x;
+            float laserY = y + height / 2 + vector2.y;
+            vector2.setLength(LASER_LENGTH);
+            laser.set(laserX, laserY, x + width / 2 + vector2.x, y + height / 2 + vector2.y);
+            raycasts.submit(laser);
         }
     
         @Override
         public void draw() {
             super.draw();
             
-            //calculate begin point of laser
+            //calculate begin point of laser from the interpolated pose so it stays on the barrel
+            float drawRotation = getDrawRotation();
             vector2.set(BULLET_START_DISTANCE, 0);
-            vector2.rotate(rotation);
-            float turretX = x + width / 2 + vector2.x;
-            float turretY = y + height / 2 + vector2.y;
+            vector2.rotate(drawRotation);
+            float turretX = getDrawX() + width / 2 + vector2.x;
+            float turretY = getDrawY() + height / 2 + vector2.y;
             
-            //calculate end point of laser
-            vector2.setLength(800f);
-            vector2.add(x + width / 2, y + height /2);
-            
-            //collide with the closest enemy
-            world.querySegmentWithCoords(turretX, turretY, vector2.x, vector2.y,CollisionFilter.defaultFilter, infos);
-            if (infos.size() > 0) {
-                vector2.set(infos.get(0).x1, infos.get(0).y1);
-            }
+            //stop as far along the barrel as the closest enemy found by the last raycast, which was cast at the tick pose
+            float length = laser.hit ? Vector2.dst(laser.startX, laser.startY, laser.hitX, laser.hitY)
+                    : LASER_LENGTH - BULLET_START_DISTANCE;
             
-            //draw laser
-            shapeDrawer.setColor(Color.GREEN);
-            shapeDrawer.line(turretX, turretY, vector2.x, vector2.y);
+            //draw laser as a stretched white pixel so it is sorted with the sprites
+            renderQueue.add(RenderQueue.LAYER_LASER, white, turretX, turretY - LASER_WIDTH / 2, 0, LASER_WIDTH / 2,
+                    length, LASER_WIDTH, 1, 1, drawRotation, LASER_COLOR);
         }
     }
     
-    public class Bullet extends Entity {
+    public static class Bullet extends Entity {
+        private boolean hit;
+        
         public Bullet() {
             animation = bullet;
+            layer = RenderQueue.LAYER_BULLETS;
             
             bboxX = 0;
             bboxY = 0;
-            bboxWidth = bullet.getKeyFrames()[0].getRegionWidth();
-            bboxHeight = bullet.getKeyFrames()[0].getRegionHeight();
+            bboxWidth = BULLET_WIDTH;
+            bboxHeight = BULLET_HEIGHT;
             
             item = new Item<>(this);
+            setCategory(Category.BULLET);
         }
     
         @Override
         public void act(float delta) {
-            //update physics
-            x += delta * deltaX;
-            y += delta * deltaY;
+            //take the physics integrated for this tick
+            MotionStore motion = entities.motion;
+            x = motion.x[index];
+            y = motion.y[index];
             
             //handle collisions
-            Result result = world.move(item, x, y, BULLLET_COLLISION_FILTER);
-            for (int i = 0; i < result.projectedCollisions.size(); i++) {
-                Collision collision = result.projectedCollisions.get(i);
-                if (collision.other.userData instanceof Enemy) {
-                    //ran into enemy: kill bullet
-                    entities.removeValue(this, true);
-                    if (item != null) {
-                        world.remove(item);
-                        item = null;
-                    }
-                    
-                    Enemy enemy = (Enemy) collision.other.userData;
-                    if (!enemy.isDying()) {
-                        //enemy is not dead yet: kill it
-                        enemy.die();
-                        hurtSound.play();
-                    } else {
-                        //push the enemy
-                        enemy.deltaX += deltaX * BULLET_PUSH_MAGNITUDE;
-                        enemy.deltaY += deltaY * BULLET_PUSH_MAGNITUDE;
-                    }
-                }
+            hit = false;
+            cellSizeTuner.recordMove(this, x, y);
+            Result result = world.move(item, x, y, Category.FILTER);
+            handleContacts(result);
+            
+            if (hit) {
+                entities.remove(this);
+                return;
             }
             
             //update position based on collisions
             Rect rect = world.getRect(item);
-            if (rect != null) {
-                x = rect.x;
-                y = rect.y;
-            }
+            x = rect.x;
+            y = rect.y;
+            motion.x[index] = x;
+            motion.y[index] = y;
             
             //if outside view
             if (x < camera.position.x - camera.viewportWidth / 2 || x > camera.position.x + camera.viewportWidth / 2 ||
                     y < camera.position.y - camera.viewportHeight / 2 || y > camera.position.y + camera.viewportHeight / 2) {
                 //destroy the entity
-                entities.removeValue(this, true);
-                if (item != null) {
-                    world.remove(item);
-                    item = null;
-                }
+                entities.remove(this);
             }
         }
-    }
-    
-    public static class PlayerCollisionFilter implements CollisionFilter {
+        
         @Override
-        public Response filter(Item item, Item other) {
-            if (other.userData instanceof Enemy) return Response.slide;
-            else return null;
+        public void contactEnemy(Enemy enemy, Collision collision) {
+            //ran into enemy: kill bullet
+            hit = true;
+            
+            if (!enemy.isDying()) {
+                //enemy is not dead yet: kill it
+                enemy.die();
+                hurtSound.play();
+            } else {
+                //push the enemy
+                enemy.setVelocity(enemy.deltaX + deltaX * BULLET_PUSH_MAGNITUDE, enemy.deltaY + deltaY * BULLET_PUSH_MAGNITUDE);
+            }
         }
-    }
-    
-    public static class BulletCollisionFilter implements CollisionFilter {
+        
+        /**
+         * Returns the bullet to the pool once it has been taken out of the game. The item is kept so it can be added
+         * back to the world when the bullet is fired again.
+         */
         @Override
-        public Response filter(Item item, Item other) {
-            if (other.userData instanceof Enemy) return Response.cross;
-            else return null;
+        public void despawned() {
+            bulletPool.free(this);
         }
     }
 }
@@ -0,0 +1,63 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) 2020 Raymond Buckley
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package com.ray3k.jbumpexample.tank;
+
+/**
+ * A segment query submitted to Raycasts. The result fields are written when the queries of a tick are run and stay
+ * valid until the next run, so the renderer can read them between ticks.
+ */
+public class Raycast {
+    public float startX;
+    public float startY;
+    public float endX;
+    public float endY;
+    /**
+     * The categories the ray can hit as bits.
+     */
+    public int mask;
+    /**
+     * True if the ray hit an entity in the last run.
+     */
+    public boolean hit;
+    /**
+     * The nearest entity hit in the last run or null.
+     */
+    public Entity hitEntity;
+    /**
+     * Where the ray entered the nearest entity, or the end of the ray if nothing was hit.
+     */
+    public float hitX;
+    public float hitY;
+    
+    public Raycast(int mask) {
+        this.mask = mask;
+    }
+    
+    public void set(float startX, float startY, float endX, float endY) {
+        this.startX = startX;
+        this.startY = startY;
+        this.endX = endX;
+        this.endY = endY;
+    }
+}
@@ -0,0 +1,148 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) 2020 Raymond Buckley
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package com.ray3k.jbumpexample.tank;
+
+import com.badlogic.gdx.utils.Array;
+import com.dongbat.jbump.CollisionFilter;
+import com.dongbat.jbump.Item;
+import com.dongbat.jbump.Rect;
+import com.dongbat.jbump.Response;
+
+import java.util.ArrayList;
+
+import static com.ray3k.jbumpexample.tank.Core.*;
+
+/**
+ * Runs the segment queries submitted during a tick together at the end of the tick. Only the nearest hit of each ray is
+ * kept. The ray is walked in steps of STEP_LENGTH and every step queries the world for the items of the requested
+ * categories in the bounds of that step only. The walk stops at the first step that confirms a hit, so a short hit
+ * doesn't pay for the rest of the ray and no hits are collected or sorted.
+ */
+public class Raycasts {
+    /**
+     * The length of the part of a ray checked per world query.
+     */
+    public static float STEP_LENGTH = 128f;
+    private final Array<Raycast> pending = new Array<>();
+    private final ArrayList<Item> items = new ArrayList<>();
+    private final MaskFilter maskFilter = new MaskFilter();
+    
+    /**
+     * Queues the raycast to be run at the end of the tick. Its previous results are kept until then.
+     */
+    public void submit(Raycast raycast) {
+        pending.add(raycast);
+    }
+    
+    /**
+     * Runs and clears the queued raycasts.
+     */
+    public void run() {
+        for (int i = 0; i < pending.size; i++) {
+            cast(pending.get(i));
+        }
+        pending.clear();
+    }
+    
+    /**
+     * Finds the nearest entity hit by the raycast immediately.
+     */
+    public void cast(Raycast raycast) {
+        float deltaX = raycast.endX - raycast.startX;
+        float deltaY = raycast.endY - raycast.startY;
+        float length = (float) Math.sqrt(deltaX * deltaX + deltaY * deltaY);
+        int steps = Math.max(1, (int) Math.ceil(length / STEP_LENGTH));
+        maskFilter.mask = raycast.mask;
+        
+        float nearest = Float.MAX_VALUE;
+        Entity nearestEntity = null;
+        for (int step = 0; step < steps; step++) {
+            float t1 = (float) step / steps;
+            float t2 = (float) (step + 1) / steps;
+            float x1 = raycast.startX + deltaX * t1;
+            float y1 = raycast.startY + deltaY * t1;
+            float x2 = raycast.startX + deltaX * t2;
+            float y2 = raycast.startY + deltaY * t2;
+            world.queryRect(Math.min(x1, x2), Math.min(y1, y2), Math.abs(x2 - x1), Math.abs(y2 - y1), maskFilter, items);
+            for (int i = 0; i < items.size(); i++) {
+                Item item = items.get(i);
+                float t = intersect(raycast.startX, raycast.startY, deltaX, deltaY, world.getRect(item));
+                if (t < nearest) {
+                    nearest = t;
+                    nearestEntity = (Entity) item.userData;
+                }
+            }
+            
+            //every item the ray enters before the end of this step overlaps this step or an earlier one
+            if (nearest <= t2) break;
+        }
+        
+        raycast.hit = nearestEntity != null;
+        raycast.hitEntity = nearestEntity;
+        if (nearestEntity == null) nearest = 1;
+        raycast.hitX = raycast.startX + deltaX * nearest;
+        raycast.hitY = raycast.startY + deltaY * nearest;
+    }
+    
+    /**
+     * Returns the fraction of the segment at which it enters the rectangle, 0 if it starts inside, or Float.MAX_VALUE if
+     * it misses.
+     */
+    private static float intersect(float x, float y, float deltaX, float deltaY, Rect rect) {
+        float enter = 0;
+        float exit = 1;
+        
+        //clip the segment against the vertical and then the horizontal sides
+        if (deltaX == 0) {
+            if (x < rect.x || x > rect.x + rect.w) return Float.MAX_VALUE;
+        } else {
+            float tA = (rect.x - x) / deltaX;
+            float tB = (rect.x + rect.w - x) / deltaX;
+            enter = Math.max(enter, Math.min(tA, tB));
+            exit = Math.min(exit, Math.max(tA, tB));
+        }
+        if (deltaY == 0) {
+            if (y < rect.y || y > rect.y + rect.h) return Float.MAX_VALUE;
+        } else {
+            float tA = (rect.y - y) / deltaY;
+            float tB = (rect.y + rect.h - y) / deltaY;
+            enter = Math.max(enter, Math.min(tA, tB));
+            exit = Math.min(exit, Math.max(tA, tB));
+        }
+        
+        return enter <= exit ? enter : Float.MAX_VALUE;
+    }
+    
+    /**
+     * Accepts the items of the entities whose category is in the mask.
+     */
+    private static class MaskFilter implements CollisionFilter {
+        private int mask;
+        
+        @Override
+        public Response filter(Item item, Item other) {
+            return (mask & 1 << ((Entity) item.userData).category) != 0 ? Response.cross : null;
+        }
+    }
+}
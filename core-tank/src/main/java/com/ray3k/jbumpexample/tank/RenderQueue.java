@@ -0,0 +1,153 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) 2020 Raymond Buckley
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package com.ray3k.jbumpexample.tank;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.utils.ObjectIntMap;
+
+/**
+ * Collects the sprites of a frame and draws them in one pass sorted by layer, then by texture. Sprites with the same
+ * layer and texture keep the order they were added in. The sort is a two pass radix sort on a 16 bit key, so its cost
+ * grows linearly with the number of sprites. Colours are packed floats so the batch colour is only changed when two
+ * consecutive sprites differ.
+ */
+public class RenderQueue {
+    public static final int LAYER_ENEMIES = 0;
+    public static final int LAYER_BULLETS = 1;
+    public static final int LAYER_PLAYER = 2;
+    public static final int LAYER_TURRET = 3;
+    public static final int LAYER_LASER = 4;
+    private static final int STRIDE = 10;
+    public int size;
+    private int[] keys = new int[256];
+    private int[] order = new int[256];
+    private int[] sorted = new int[256];
+    private TextureRegion[] regions = new TextureRegion[256];
+    private float[] values = new float[256 * STRIDE];
+    private final int[] counts = new int[256];
+    private final ObjectIntMap<Texture> textureIds = new ObjectIntMap<>();
+    
+    /**
+     * Queues a sprite. The arguments are those of Batch.draw() with rotation and scale.
+     * @param layer from 0 to 255, higher layers are drawn on top
+     * @param color a colour packed with Color.toFloatBits()
+     */
+    public void add(int layer, TextureRegion region, float x, float y, float originX, float originY, float width,
+                    float height, float scaleX, float scaleY, float rotation, float color) {
+        if (size == keys.length) grow();
+        
+        //textures are numbered in the order they are first seen, which is enough to group them
+        Texture texture = region.getTexture();
+        int textureId = textureIds.get(texture, -1);
+        if (textureId == -1) {
+            textureId = textureIds.size;
+            textureIds.put(texture, textureId);
+        }
+        keys[size] = layer << 8 | textureId & 0xFF;
+        regions[size] = region;
+        
+        int offset = size * STRIDE;
+        values[offset] = x;
+        values[offset + 1] = y;
+        values[offset + 2] = originX;
+        values[offset + 3] = originY;
+        values[offset + 4] = width;
+        values[offset + 5] = height;
+        values[offset + 6] = scaleX;
+        values[offset + 7] = scaleY;
+        values[offset + 8] = rotation;
+        values[offset + 9] = color;
+        size++;
+    }
+    
+    /**
+     * Sorts the queued sprites, draws them, and empties the queue. Call between begin() and end() of the batch. The
+     * batch colour is white afterwards.
+     */
+    public void flush(Batch batch) {
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        radixPass(order, sorted, 0);
+        radixPass(sorted, order, 8);
+        
+        float currentColor = Color.WHITE_FLOAT_BITS;
+        batch.setPackedColor(currentColor);
+        for (int i = 0; i < size; i++) {
+            int index = order[i];
+            int offset = index * STRIDE;
+            float color = values[offset + 9];
+            if (color != currentColor) {
+                batch.setPackedColor(color);
+                currentColor = color;
+            }
+            batch.draw(regions[index], values[offset], values[offset + 1], values[offset + 2], values[offset + 3],
+                    values[offset + 4], values[offset + 5], values[offset + 6], values[offset + 7], values[offset + 8]);
+            regions[index] = null;
+        }
+        if (currentColor != Color.WHITE_FLOAT_BITS) batch.setPackedColor(Color.WHITE_FLOAT_BITS);
+        size = 0;
+    }
+    
+    /**
+     * One stable counting sort pass over 8 bits of the keys.
+     */
+    private void radixPass(int[] source, int[] destination, int shift) {
+        int[] counts = this.counts;
+        for (int i = 0; i < 256; i++) {
+            counts[i] = 0;
+        }
+        for (int i = 0; i < size; i++) {
+            counts[keys[source[i]] >>> shift & 0xFF]++;
+        }
+        int total = 0;
+        for (int i = 0; i < 256; i++) {
+            int count = counts[i];
+            counts[i] = total;
+            total += count;
+        }
+        for (int i = 0; i < size; i++) {
+            int index = source[i];
+            destination[counts[keys[index] >>> shift & 0xFF]++] = index;
+        }
+    }
+    
+    private void grow() {
+        int capacity = keys.length * 2;
+        int[] newKeys = new int[capacity];
+        System.arraycopy(keys, 0, newKeys, 0, size);
+        keys = newKeys;
+        order = new int[capacity];
+        sorted = new int[capacity];
+        TextureRegion[] newRegions = new TextureRegion[capacity];
+        System.arraycopy(regions, 0, newRegions, 0, size);
+        regions = newRegions;
+        float[] newValues = new float[capacity * STRIDE];
+        System.arraycopy(values, 0, newValues, 0, size * STRIDE);
+        values = newValues;
+    }
+}
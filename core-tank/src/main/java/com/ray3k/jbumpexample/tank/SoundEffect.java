@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) 2020 Raymond Buckley
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package com.ray3k.jbumpexample.tank;
+
+import com.badlogic.gdx.audio.Sound;
+import com.badlogic.gdx.utils.Disposable;
+
+import static com.ray3k.jbumpexample.tank.Core.*;
+
+/**
+ * A sound with a limited number of voices. play() only counts a request, the sound is started by Core.sounds at the
+ * end of the frame. Requests made in the same frame are coalesced into one louder play, requests made within
+ * minInterval of the last play are dropped, and once every voice is busy the oldest one is stopped to make room.
+ */
+public class SoundEffect implements Disposable {
+    /**
+     * The volume added by every request coalesced into a play, as a fraction of volume.
+     */
+    public static final float COALESCE_GAIN = .25f;
+    public final Sound sound;
+    public final int maxVoices;
+    public float volume = 1f;
+    private final long minInterval;
+    private final long length;
+    private final long[] voiceIds;
+    private final long[] voiceTimes;
+    private int firstVoice;
+    private int voices;
+    private long lastPlayTime;
+    private int requests;
+    
+    /**
+     * @param minInterval the shortest time between two plays in seconds
+     * @param length the length of the sound in seconds, after which its voice is considered free
+     */
+    public SoundEffect(Sound sound, int maxVoices, float minInterval, float length) {
+        this.sound = sound;
+        this.maxVoices = maxVoices;
+        this.minInterval = (long) (minInterval * 1000000000L);
+        this.length = (long) (length * 1000000000L);
+        voiceIds = new long[maxVoices];
+        voiceTimes = new long[maxVoices];
+        lastPlayTime = Long.MIN_VALUE / 2;
+    }
+    
+    /**
+     * Requests the sound to be played at the end of the frame.
+     */
+    public void play() {
+        if (requests++ == 0) sounds.queue(this);
+    }
+    
+    /**
+     * Plays the requests of the frame. Called by SoundManager on the render thread.
+     */
+    void flush(long time) {
+        int count = requests;
+        requests = 0;
+        if (time - lastPlayTime < minInterval) {
+            sounds.dropped += count;
+            return;
+        }
+        
+        //free the voices that have finished, then steal the oldest one if all are busy
+        while (voices > 0 && time - voiceTimes[firstVoice] >= length) {
+            firstVoice = (firstVoice + 1) % maxVoices;
+            voices--;
+        }
+        if (voices == maxVoices) {
+            sound.stop(voiceIds[firstVoice]);
+            firstVoice = (firstVoice + 1) % maxVoices;
+            voices--;
+        }
+        
+        long id = sound.play(Math.min(1f, volume * (1 + COALESCE_GAIN * (count - 1))));
+        if (id == -1) {
+            sounds.dropped += count;
+            return;
+        }
+        int slot = (firstVoice + voices) % maxVoices;
+        voiceIds[slot] = id;
+        voiceTimes[slot] = time;
+        voices++;
+        lastPlayTime = time;
+        sounds.plays++;
+        sounds.coalesced += count - 1;
+    }
+    
+    @Override
+    public void dispose() {
+        sound.dispose();
+    }
+}
@@ -0,0 +1,55 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) 2020 Raymond Buckley
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package com.ray3k.jbumpexample.tank;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.TimeUtils;
+
+/**
+ * Collects the SoundEffects requested during the ticks of a frame and starts them together in flush(). The audio
+ * backend is not thread safe, so flush() must be called on the render thread, once per frame.
+ */
+public class SoundManager {
+    /**
+     * The number of sounds started, of requests merged into another play, and of requests dropped by a minimum
+     * interval since the application started.
+     */
+    public int plays;
+    public int coalesced;
+    public int dropped;
+    private final Array<SoundEffect> queued = new Array<>(false, 16, SoundEffect.class);
+    
+    void queue(SoundEffect soundEffect) {
+        queued.add(soundEffect);
+    }
+    
+    public void flush() {
+        long time = TimeUtils.nanoTime();
+        SoundEffect[] items = queued.items;
+        for (int i = 0, n = queued.size; i < n; i++) {
+            items[i].flush(time);
+        }
+        queued.clear();
+    }
+}
@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) 2020 Raymond Buckley
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package com.ray3k.jbumpexample.tank;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Computes the velocities of the enemies before any of them moves. Steering only reads the player and writes the fields
+ * of its own enemy, so large swarms are split across the threads of the common fork-join pool. Moving through the world
+ * is not thread safe and is left to the serial act loop.
+ */
+public class Steering {
+    /**
+     * The most enemies steered by one task. Swarms no larger than this are steered on the calling thread.
+     */
+    public static int THRESHOLD = 512;
+    private static final ThreadLocal<Vector2> VECTOR2 = new ThreadLocal<Vector2>() {
+        @Override
+        protected Vector2 initialValue() {
+            return new Vector2();
+        }
+    };
+    
+    /**
+     * One task per slice of the swarm, reused every tick so the parallel path allocates nothing once it has grown.
+     */
+    private static SteeringTask[] tasks = new SteeringTask[0];
+    
+    /**
+     * Calls {@link Enemy#steer(float, Vector2)} on every enemy in the array. Returns when all enemies are steered.
+     */
+    public static void steer(Array<Enemy> enemies, float delta) {
+        if (enemies.size <= THRESHOLD) {
+            steer(enemies.items, 0, enemies.size, delta);
+            return;
+        }
+        
+        //split the swarm into equal slices of at most THRESHOLD enemies and steer the first one on this thread
+        int slices = (enemies.size + THRESHOLD - 1) / THRESHOLD;
+        int sliceSize = (enemies.size + slices - 1) / slices;
+        if (tasks.length < slices) {
+            SteeringTask[] newTasks = new SteeringTask[slices];
+            System.arraycopy(tasks, 0, newTasks, 0, tasks.length);
+            for (int i = tasks.length; i < slices; i++) {
+                newTasks[i] = new SteeringTask();
+            }
+            tasks = newTasks;
+        }
+        for (int i = 1; i < slices; i++) {
+            SteeringTask task = tasks[i];
+            task.reinitialize();
+            task.set(enemies.items, i * sliceSize, Math.min((i + 1) * sliceSize, enemies.size), delta);
+            task.fork();
+        }
+        steer(enemies.items, 0, sliceSize, delta);
+        for (int i = 1; i < slices; i++) {
+            tasks[i].join();
+        }
+    }
+    
+    private static void steer(Enemy[] enemies, int start, int end, float delta) {
+        Vector2 temp = VECTOR2.get();
+        for (int i = start; i < end; i++) {
+            enemies[i].steer(delta, temp);
+        }
+    }
+    
+    /**
+     * Steers one slice of the swarm on a thread of the common fork-join pool.
+     */
+    private static class SteeringTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private Enemy[] enemies;
+        private int start;
+        private int end;
+        private float delta;
+        
+        public void set(Enemy[] enemies, int start, int end, float delta) {
+            this.enemies = enemies;
+            this.start = start;
+            this.end = end;
+            this.delta = delta;
+        }
+        
+        @Override
+        protected void compute() {
+            steer(enemies, start, end, delta);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) 2020 Raymond Buckley
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package com.ray3k.jbumpexample.tank;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Input.Buttons;
+import com.badlogic.gdx.Input.Keys;
+import com.badlogic.gdx.math.Vector3;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static com.ray3k.jbumpexample.tank.Core.*;
+
+/**
+ * The input of the player for one tick. The entities read Core.input instead of polling Gdx.input so a tick can be
+ * driven by the keyboard and mouse or by an InputLog alike.
+ */
+public class TickInput {
+    public static final int LEFT = 1;
+    public static final int RIGHT = 1 << 1;
+    public static final int UP = 1 << 2;
+    public static final int DOWN = 1 << 3;
+    public static final int FIRE = 1 << 4;
+    /**
+     * The bits of the buttons held during the tick.
+     */
+    public int buttons;
+    /**
+     * The point the turret aims at in world coordinates.
+     */
+    public float aimX;
+    public float aimY;
+    /**
+     * The length of the tick.
+     */
+    public float delta;
+    private final Vector3 vector3 = new Vector3();
+    
+    /**
+     * Reads the keyboard and the mouse. Without a screen to unproject the mouse from, the aim stays where it was.
+     */
+    public void poll(float delta) {
+        this.delta = delta;
+        buttons = 0;
+        if (Gdx.input.isKeyPressed(Keys.LEFT)) buttons |= LEFT;
+        if (Gdx.input.isKeyPressed(Keys.RIGHT)) buttons |= RIGHT;
+        if (Gdx.input.isKeyPressed(Keys.UP)) buttons |= UP;
+        if (Gdx.input.isKeyPressed(Keys.DOWN)) buttons |= DOWN;
+        if (Gdx.input.isButtonPressed(Buttons.LEFT)) buttons |= FIRE;
+        
+        if (Gdx.graphics.getWidth() > 0 && Gdx.graphics.getHeight() > 0) {
+            vector3.set(Gdx.input.getX(), Gdx.input.getY(), 0);
+            camera.unproject(vector3);
+            aimX = vector3.x;
+            aimY = vector3.y;
+        }
+    }
+    
+    public boolean isPressed(int button) {
+        return (buttons & button) != 0;
+    }
+    
+    /**
+     * Writes the tick in 13 bytes: the delta, the buttons, and the aim.
+     */
+    public void write(DataOutputStream output) throws IOException {
+        output.writeFloat(delta);
+        output.writeByte(buttons);
+        output.writeFloat(aimX);
+        output.writeFloat(aimY);
+    }
+    
+    public void read(DataInputStream input) throws IOException {
+        delta = input.readFloat();
+        buttons = input.readUnsignedByte();
+        aimX = input.readFloat();
+        aimY = input.readFloat();
+    }
+}
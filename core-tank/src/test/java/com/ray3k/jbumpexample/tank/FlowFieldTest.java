@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) 2020 Raymond Buckley
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package com.ray3k.jbumpexample.tank;
+
+import com.badlogic.gdx.math.Vector2;
+import org.junit.Test;
+
+import static com.ray3k.jbumpexample.tank.FlowField.CELL_SIZE;
+import static org.junit.Assert.*;
+
+public class FlowFieldTest {
+    @Test
+    public void openFieldHasNoDirections() {
+        FlowField field = new FlowField();
+        field.update(10 * CELL_SIZE, 10 * CELL_SIZE, 10 * CELL_SIZE, 10 * CELL_SIZE, 5.5f * CELL_SIZE, 5.5f * CELL_SIZE);
+        
+        Vector2 direction = new Vector2();
+        for (int column = 0; column < 20; column++) {
+            for (int row = 0; row < 20; row++) {
+                assertFalse(field.getDirection((column + .5f) * CELL_SIZE, (row + .5f) * CELL_SIZE, direction));
+            }
+        }
+        assertEquals(0, field.builds);
+    }
+    
+    @Test
+    public void blockedCellsBendDirections() {
+        FlowField field = new FlowField();
+        //a wall at column 7 between the target at 5,5 and the cell at 9,5
+        for (int row = 3; row <= 9; row++) {
+            field.setBlocked(7, row, true);
+        }
+        field.update(10 * CELL_SIZE, 10 * CELL_SIZE, 10 * CELL_SIZE, 10 * CELL_SIZE, 5.5f * CELL_SIZE, 5.5f * CELL_SIZE);
+        
+        Vector2 direction = new Vector2();
+        assertTrue(field.getDirection(9.5f * CELL_SIZE, 5.5f * CELL_SIZE, direction));
+        assertNotEquals(0, direction.y, .1f);
+        assertTrue(direction.x > -.99f);
+        
+        //behind the wall the path leads around its end, not through it
+        assertTrue(field.getDirection(8.5f * CELL_SIZE, 8.5f * CELL_SIZE, direction));
+        assertTrue(direction.y > 0);
+        
+        //in front of the wall the target is in sight
+        assertFalse(field.getDirection(6.5f * CELL_SIZE, 5.5f * CELL_SIZE, direction));
+    }
+    
+    @Test
+    public void unblockingRebuildsTheField() {
+        FlowField field = new FlowField();
+        field.setBlocked(7, 5, true);
+        field.update(10 * CELL_SIZE, 10 * CELL_SIZE, 10 * CELL_SIZE, 10 * CELL_SIZE, 5.5f * CELL_SIZE, 5.5f * CELL_SIZE);
+        field.update(10 * CELL_SIZE, 10 * CELL_SIZE, 10 * CELL_SIZE, 10 * CELL_SIZE, 5.5f * CELL_SIZE, 5.5f * CELL_SIZE);
+        assertEquals(1, field.builds);
+        
+        field.setBlocked(7, 5, false);
+        field.update(10 * CELL_SIZE, 10 * CELL_SIZE, 10 * CELL_SIZE, 10 * CELL_SIZE, 5.5f * CELL_SIZE, 5.5f * CELL_SIZE);
+        assertFalse(field.getDirection(9.5f * CELL_SIZE, 5.5f * CELL_SIZE, new Vector2()));
+    }
+}
@@ -0,0 +1,137 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) 2020 Raymond Buckley
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package com.ray3k.jbumpexample.platformer.headless;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
+import com.badlogic.gdx.utils.TimeUtils;
+import com.ray3k.jbumpexample.platformer.Assets;
+import com.ray3k.jbumpexample.platformer.Core;
+
+/**
+ * Runs the simulation of Core without rendering. Every call to render advances the game by one fixed tick so the loop
+ * runs as fast as the CPU allows. The throughput is logged once the requested number of ticks has been simulated, or
+ * once the replay of Core.REPLAY_FILE has ended. With an ALLOCATION_BUDGET the bytes allocated by the ticks after
+ * WARMUP_TICKS are measured too, and the process exits with status 1 if they exceed the budget.
+ */
+public class HeadlessCore extends Core {
+	public static final int DEFAULT_TICKS = 100000;
+	/**
+	 * The most bytes a tick may allocate on average on the render thread after the warm-up, or -1 to not measure.
+	 */
+	public static long ALLOCATION_BUDGET = -1;
+	/**
+	 * The ticks run before allocations are measured, so class loading, pools, and arrays that grow on demand settle
+	 * first.
+	 */
+	public static int WARMUP_TICKS = 1000;
+	private AllocationMeter allocationMeter;
+	private long allocationStart;
+	private boolean overBudget;
+	private final int ticks;
+	private int tick;
+	private long entityUpdates;
+	private long startTime;
+	
+	public HeadlessCore(int ticks) {
+		this.ticks = ticks;
+	}
+	
+	@Override
+	public void create() {
+		//an empty atlas lets the entities build their animations without loading any textures
+		textureAtlas = new TextureAtlas();
+		camera = new OrthographicCamera();
+		camera.setToOrtho(false, 800, 800);
+		
+		//the sounds still go through the asset manager, the headless backend only mocks them
+		assetManager = new AssetManager();
+		Assets.queueSounds(assetManager);
+		assetManager.finishLoading();
+		Assets.resolve(textureAtlas, assetManager);
+		
+		createSimulation();
+		if (ALLOCATION_BUDGET >= 0) {
+			allocationMeter = new AllocationMeter();
+			allocationStart = allocationMeter.getAllocatedBytes();
+		}
+		startTime = TimeUtils.nanoTime();
+	}
+	
+	@Override
+	public void render() {
+		tick(1 / TICK_RATE);
+		entityUpdates += activeEntities.size;
+		tick++;
+		if (allocationMeter != null && tick == WARMUP_TICKS) allocationStart = allocationMeter.getAllocatedBytes();
+		
+		//a replay also ends the run once it has no ticks left
+		if (tick == ticks || REPLAY_FILE != null && inputLog == null) {
+			//read the allocations before logging allocates anything
+			long allocated = allocationMeter != null ? allocationMeter.getAllocatedBytes() - allocationStart : 0;
+			float seconds = (TimeUtils.nanoTime() - startTime) / 1000000000f;
+			Gdx.app.log("HeadlessCore", tick + " ticks in " + seconds + "s: " + (int) (tick / seconds) + " ticks/sec, "
+					+ (long) (entityUpdates / seconds) + " entities/sec");
+			if (allocationMeter != null) checkAllocations(allocated);
+			Gdx.app.log("HeadlessCore", cellSizeTuner.report());
+			Gdx.app.exit();
+		}
+	}
+	
+	/**
+	 * Logs the bytes allocated per tick after the warm-up and flags the run as failed if they exceed the budget.
+	 */
+	private void checkAllocations(long allocated) {
+		int measuredTicks = tick - WARMUP_TICKS;
+		if (measuredTicks <= 0) {
+			Gdx.app.error("HeadlessCore", "No ticks left to measure after the warm-up of " + WARMUP_TICKS + " ticks.");
+			overBudget = true;
+			return;
+		}
+		
+		Gdx.app.log("HeadlessCore", allocated + " bytes allocated in " + measuredTicks + " ticks after warm-up: "
+				+ (float) allocated / measuredTicks + " bytes/tick, budget " + ALLOCATION_BUDGET + " bytes/tick");
+		if (allocated > ALLOCATION_BUDGET * measuredTicks) {
+			Gdx.app.error("HeadlessCore", "Allocation budget exceeded.");
+			overBudget = true;
+		}
+	}
+	
+	@Override
+	public void resize(int width, int height) {
+	
+	}
+	
+	@Override
+	public void dispose() {
+		textureAtlas.dispose();
+		assetManager.dispose();
+		if (inputLog != null) inputLog.dispose();
+		
+		//report a failed allocation check to the caller, e.g. the allocationBudget task
+		if (overBudget) System.exit(1);
+	}
+}
@@ -0,0 +1,55 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) 2020 Raymond Buckley
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package com.ray3k.jbumpexample.tank.headless;
+
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Reads the number of bytes allocated so far by the thread that created it, using the HotSpot extension of
+ * ThreadMXBean. Allocations made on other threads, such as the workers of Steering, are not counted.
+ */
+public class AllocationMeter {
+	private final com.sun.management.ThreadMXBean threadMXBean;
+	private final long threadId;
+	
+	public AllocationMeter() {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+			throw new GdxRuntimeException("This JVM can't measure the allocations of a thread.");
+		}
+		threadMXBean = (com.sun.management.ThreadMXBean) bean;
+		if (!threadMXBean.isThreadAllocatedMemorySupported()) {
+			throw new GdxRuntimeException("This JVM can't measure the allocations of a thread.");
+		}
+		threadMXBean.setThreadAllocatedMemoryEnabled(true);
+		threadId = Thread.currentThread().getId();
+	}
+	
+	public long getAllocatedBytes() {
+		return threadMXBean.getThreadAllocatedBytes(threadId);
+	}
+}
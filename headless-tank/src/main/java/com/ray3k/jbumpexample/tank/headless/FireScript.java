@@ -0,0 +1,62 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) 2020 Raymond Buckley
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package com.ray3k.jbumpexample.tank.headless;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.math.MathUtils;
+import com.ray3k.jbumpexample.tank.Core;
+import com.ray3k.jbumpexample.tank.InputLog;
+import com.ray3k.jbumpexample.tank.TickInput;
+
+/**
+ * Writes an InputLog in which the player holds fire and sweeps the turret around, so a headless replay exercises the
+ * bullets, their pool, and the kills the way a real game does. The arguments are the file to write and the number of
+ * ticks. Without a window the player starts at the origin, so the aim circles around it.
+ */
+public class FireScript {
+	/**
+	 * The seed of the script, fixed so every run spawns the same enemies.
+	 */
+	public static final long SEED = 1;
+	/**
+	 * Turns of the turret per second.
+	 */
+	public static final float SWEEP_SPEED = .5f;
+	public static final float AIM_DISTANCE = 200;
+	
+	public static void main(String[] args) {
+		int ticks = Integer.parseInt(args[1]);
+		InputLog log = InputLog.record(new FileHandle(args[0]), SEED);
+		TickInput tickInput = new TickInput();
+		tickInput.buttons = TickInput.FIRE;
+		tickInput.delta = 1 / Core.TICK_RATE;
+		for (int i = 0; i < ticks; i++) {
+			float angle = i * tickInput.delta * SWEEP_SPEED * MathUtils.PI2;
+			tickInput.aimX = MathUtils.cos(angle) * AIM_DISTANCE;
+			tickInput.aimY = MathUtils.sin(angle) * AIM_DISTANCE;
+			log.append(tickInput);
+		}
+		log.dispose();
+	}
+}
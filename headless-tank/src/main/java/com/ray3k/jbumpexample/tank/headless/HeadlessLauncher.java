@@ -0,0 +1,65 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) 2020 Raymond Buckley
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package com.ray3k.jbumpexample.tank.headless;
+
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.backends.headless.HeadlessApplicationConfiguration;
+import com.ray3k.jbumpexample.tank.Core;
+import com.ray3k.jbumpexample.tank.Steering;
+
+/**
+ * Launches the simulation without a window, graphics, or audio. The optional arguments are the number of ticks to run
+ * and --record <file> or --replay <file>, see Core.RECORD_FILE and Core.REPLAY_FILE. --budget <bytes per tick> and
+ * --warmup <ticks> measure the allocations of the ticks, see HeadlessCore.ALLOCATION_BUDGET. --cell-size <size> sets
+ * the cell size of the world, see Core.CELL_SIZE. --restart restarts the game when the player dies, see
+ * HeadlessCore.RESTART. --steering-threshold <count> sets the swarm size above which steering runs in parallel, see
+ * Steering.THRESHOLD.
+ */
+public class HeadlessLauncher {
+	public static void main(String[] args) {
+		int ticks = HeadlessCore.DEFAULT_TICKS;
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("--record") && i + 1 < args.length) Core.RECORD_FILE = args[++i];
+			else if (args[i].equals("--replay") && i + 1 < args.length) Core.REPLAY_FILE = args[++i];
+			else if (args[i].equals("--budget") && i + 1 < args.length) HeadlessCore.ALLOCATION_BUDGET = Long.parseLong(args[++i]);
+			else if (args[i].equals("--warmup") && i + 1 < args.length) HeadlessCore.WARMUP_TICKS = Integer.parseInt(args[++i]);
+			else if (args[i].equals("--cell-size") && i + 1 < args.length) Core.CELL_SIZE = Float.parseFloat(args[++i]);
+			else if (args[i].equals("--restart")) HeadlessCore.RESTART = true;
+			else if (args[i].equals("--steering-threshold") && i + 1 < args.length) Steering.THRESHOLD = Integer.parseInt(args[++i]);
+			else ticks = Integer.parseInt(args[i]);
+		}
+		createApplication(ticks);
+	}
+
+	private static HeadlessApplication createApplication(int ticks) {
+		return new HeadlessApplication(new HeadlessCore(ticks), getDefaultConfiguration());
+	}
+
+	private static HeadlessApplicationConfiguration getDefaultConfiguration() {
+		HeadlessApplicationConfiguration configuration = new HeadlessApplicationConfiguration();
+		//render as often as possible instead of waiting for the next frame
+		configuration.renderInterval = 0;
+		return configuration;
+	}
+}
@@ -30,6 +30,16 @@ import com.ray3k.jbumpexample.platformer.Core;
 /** Launches the desktop (LWJGL3) application. */
 public class Lwjgl3Launcher {
 	public static void main(String[] args) {
+		//the optional arguments are a level to load instead of the built-in map, see Core.LEVEL, and --record <file>
+		//or --replay <file>, see Core.RECORD_FILE and Core.REPLAY_FILE, and --cell-size <size> and --auto-cell-size, see
+		//Core.CELL_SIZE and Core.AUTO_CELL_SIZE
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("--record") && i + 1 < args.length) Core.RECORD_FILE = args[++i];
+			else if (args[i].equals("--replay") && i + 1 < args.length) Core.REPLAY_FILE = args[++i];
+			else if (args[i].equals("--cell-size") && i + 1 < args.length) Core.CELL_SIZE = Float.parseFloat(args[++i]);
+			else if (args[i].equals("--auto-cell-size")) Core.AUTO_CELL_SIZE = true;
+			else Core.LEVEL = args[i];
+		}
 		createApplication();
 	}
 